@@ -0,0 +1,131 @@
+package com.example.android.newsapp;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that cancelling a {@link FetchCancellation} stops a fetch that is stuck reading a slow
+ * response, well before the read timeout, and closes its connection.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FetchCancellationTest {
+
+    /** Comfortably below the 10 second read timeout in {@link QueryUtils}. */
+    private static final long PROMPT_MILLIS = 2000;
+
+    private ServerSocket mServerSocket;
+
+    /** Counted down once the server has started sending the response body. */
+    private final CountDownLatch mBodyStarted = new CountDownLatch(1);
+
+    /** Counted down once the server notices the client has gone away. */
+    private final CountDownLatch mClientGone = new CountDownLatch(1);
+
+    @Before
+    public void startServer() throws IOException {
+        mServerSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serveSlowResponse();
+            }
+        }).start();
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        mServerSocket.close();
+    }
+
+    @Test
+    public void cancel_releasesThreadAndConnectionPromptly() throws Exception {
+        final String url = "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/search";
+        final FetchCancellation cancellation = new FetchCancellation();
+        final AtomicReference<List<Review>> result = new AtomicReference<>();
+        final CountDownLatch fetchFinished = new CountDownLatch(1);
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result.set(QueryUtils.fetchReviewData(url, cancellation));
+                fetchFinished.countDown();
+            }
+        }).start();
+
+        assertTrue(mBodyStarted.await(PROMPT_MILLIS, TimeUnit.MILLISECONDS));
+        long canceledAt = System.nanoTime();
+        cancellation.cancel();
+
+        assertTrue(fetchFinished.await(PROMPT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(mClientGone.await(PROMPT_MILLIS, TimeUnit.MILLISECONDS));
+        assertNull(result.get());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - canceledAt) < PROMPT_MILLIS);
+    }
+
+    /**
+     * Sends the start of a review response and then trickles records out until the client
+     * disconnects.
+     */
+    private void serveSlowResponse() {
+        Socket socket = null;
+        try {
+            socket = mServerSocket.accept();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), Charset.forName("UTF-8")));
+            // Skip the request headers.
+            String line = reader.readLine();
+            while (line != null && !line.isEmpty()) {
+                line = reader.readLine();
+            }
+
+            OutputStream out = socket.getOutputStream();
+            out.write(("HTTP/1.1 200 OK\r\n"
+                    + "Content-Type: application/json\r\n"
+                    + "Content-Length: 100000000\r\n"
+                    + "\r\n"
+                    + "{\"response\":{\"results\":[").getBytes("UTF-8"));
+            out.flush();
+            mBodyStarted.countDown();
+
+            while (true) {
+                out.write(("{\"webTitle\":\"Slow review\",\"webUrl\":\"http://example.com\","
+                        + "\"webPublicationDate\":\"2018-06-01T00:00:00Z\",\"tags\":[],"
+                        + "\"fields\":{\"starRating\":\"3\"}},").getBytes("UTF-8"));
+                out.flush();
+                Thread.sleep(50);
+            }
+        } catch (IOException e) {
+            // The client closed the connection.
+            mClientGone.countDown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Already closed by the client.
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.android.newsapp;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Intent;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Starts the app and round-trips through the settings screen with the StrictMode policy from
+ * {@link NewsApplication} in force. Any main-thread disk or network access kills the process
+ * and fails the test.
+ *
+ * Run with {@code ./gradlew connectedAndroidTest -PstrictMode}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StrictModeTest {
+
+    @Rule
+    public ActivityTestRule<ReviewActivity> mActivityRule =
+            new ActivityTestRule<>(ReviewActivity.class, false, false);
+
+    @Rule
+    public ActivityTestRule<SettingsActivity> mSettingsRule =
+            new ActivityTestRule<>(SettingsActivity.class, false, false);
+
+    @Before
+    public void requireStrictMode() {
+        assumeTrue(BuildConfig.STRICT_MODE);
+    }
+
+    @Test
+    public void startupAndSettingsRoundTrip_doNotTouchDiskOnMainThread() {
+        mActivityRule.launchActivity(null);
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        Instrumentation.ActivityMonitor monitor =
+                instrumentation.addMonitor(SettingsActivity.class.getName(), null, false);
+
+        // Let the settings snapshot load and the first fetch start.
+        instrumentation.waitForIdleSync();
+
+        Intent settingsIntent = new Intent(mActivityRule.getActivity(), SettingsActivity.class);
+        mActivityRule.getActivity().startActivity(settingsIntent);
+        Activity settings = instrumentation.waitForMonitorWithTimeout(monitor, 5000);
+        assertNotNull(settings);
+        instrumentation.waitForIdleSync();
+
+        settings.finish();
+        instrumentation.waitForIdleSync();
+
+        assertFalse(mActivityRule.getActivity().isFinishing());
+    }
+
+    /**
+     * Opens the settings screen without going through {@link ReviewActivity}, as happens when
+     * the process is restarted straight into it. The test orchestrator set up in build.gradle
+     * runs each test in a fresh process, so the preferences are always cold here.
+     */
+    @Test
+    public void settingsColdStart_doesNotTouchDiskOnMainThread() {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+
+        SettingsActivity settings = mSettingsRule.launchActivity(null);
+        // Let the settings snapshot load and the preferences inflate.
+        instrumentation.waitForIdleSync();
+
+        assertFalse(settings.isFinishing());
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Loads thumbnails from a local image server and compares the bytes downloaded and decoded per
+ * row against the old behaviour of loading the default thumbnail at full resolution.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ThumbnailLoaderTest {
+
+    /** Widths the local server has the image in. 500 is what the "thumbnail" field points at. */
+    private static final int[] WIDTHS = {140, 500, 1000};
+
+    /** Width of the default thumbnail the app used to load. */
+    private static final int DEFAULT_WIDTH = 500;
+
+    /** Size of the square thumbnail view, in pixels. The 140 image is tall enough for it. */
+    private static final int VIEW_SIZE = 80;
+
+    private ServerSocket mServerSocket;
+
+    @Before
+    public void startServer() throws IOException {
+        mServerSocket = new ServerSocket(0, 10, InetAddress.getByName("127.0.0.1"));
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serveImages();
+            }
+        }).start();
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        mServerSocket.close();
+    }
+
+    @Test
+    public void adaptiveThumbnails_useFewerBytesPerRow() throws IOException {
+        // Old behaviour: download the default thumbnail and decode it at full size.
+        byte[] defaultImage = download(imageUrl(DEFAULT_WIDTH));
+        Bitmap fullSize = BitmapFactory.decodeByteArray(defaultImage, 0, defaultImage.length);
+        long defaultNetworkBytes = defaultImage.length;
+        long defaultBitmapBytes = fullSize.getRowBytes() * fullSize.getHeight();
+
+        ThumbnailLoader loader = newLoader("adaptive");
+        Bitmap thumbnail = loader.request(review(), VIEW_SIZE, VIEW_SIZE, false).get();
+
+        assertNotNull(thumbnail);
+        assertEquals(1, loader.getDecodeCount());
+        assertEquals(Bitmap.Config.RGB_565, thumbnail.getConfig());
+        assertTrue(loader.getNetworkBytes() > 0);
+        assertTrue(loader.getNetworkBytes() < defaultNetworkBytes);
+        assertTrue(loader.getBitmapBytes() < defaultBitmapBytes);
+    }
+
+    @Test
+    public void constrainedNetwork_stepsDownToSmallerImage() throws IOException {
+        ThumbnailLoader loader = newLoader("adaptive");
+        loader.request(review(), DEFAULT_WIDTH, DEFAULT_WIDTH, false).get();
+        long unconstrainedBytes = loader.getNetworkBytes();
+
+        ThumbnailLoader constrainedLoader = newLoader("constrained");
+        constrainedLoader.request(review(), DEFAULT_WIDTH, DEFAULT_WIDTH, true).get();
+
+        assertTrue(constrainedLoader.getNetworkBytes() > 0);
+        assertTrue(constrainedLoader.getNetworkBytes() < unconstrainedBytes);
+    }
+
+    @Test
+    public void firstDecode_computesPlaceholderColor() throws IOException {
+        ThumbnailLoader loader = newLoader("placeholder");
+        Review review = review();
+        assertEquals(ThumbnailPlaceholders.NONE, review.getPlaceholderColor());
+
+        loader.request(review, VIEW_SIZE, VIEW_SIZE, false).get();
+
+        // Computed on Picasso's thread from the decoded image, without another request.
+        assertNotEquals(ThumbnailPlaceholders.NONE, review.getPlaceholderColor());
+        assertEquals(0xFF, Color.alpha(review.getPlaceholderColor()));
+        assertEquals(review.getPlaceholderColor(), ThumbnailPlaceholders.get(review.getUrl()));
+        assertEquals(1, loader.getDecodeCount());
+    }
+
+    @Test
+    public void knownColor_isShownAsPlaceholder() {
+        final ThumbnailLoader loader = newLoader("bind");
+        final Review review = review();
+        review.setPlaceholderColor(0xFF336699);
+
+        final AtomicReference<Drawable> placeholder = new AtomicReference<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                ImageView imageView = new ImageView(InstrumentationRegistry.getTargetContext());
+                imageView.setLayoutParams(new ViewGroup.LayoutParams(VIEW_SIZE, VIEW_SIZE));
+                loader.load(review, imageView, false);
+                // Picasso shows the placeholder as soon as the request is made.
+                placeholder.set(imageView.getDrawable());
+            }
+        });
+
+        assertTrue(placeholder.get() instanceof ColorDrawable);
+        assertEquals(0xFF336699, ((ColorDrawable) placeholder.get()).getColor());
+    }
+
+    @Test
+    public void averageColor_averagesWholeImage() {
+        // Red on the left three quarters and blue on the right quarter, so the centre is red.
+        Bitmap bitmap = Bitmap.createBitmap(80, 40, Bitmap.Config.ARGB_8888);
+        for (int y = 0; y < bitmap.getHeight(); y++) {
+            for (int x = 0; x < bitmap.getWidth(); x++) {
+                bitmap.setPixel(x, y, x < 60 ? Color.RED : Color.BLUE);
+            }
+        }
+
+        int color = ThumbnailLoader.averageColor(bitmap);
+
+        assertEquals(0xFF, Color.alpha(color));
+        assertEquals(191, Color.red(color), 2);
+        assertEquals(0, Color.green(color), 2);
+        assertEquals(64, Color.blue(color), 2);
+    }
+
+    /**
+     * Returns a loader with its own empty cache, so every image comes from the server.
+     */
+    private static ThumbnailLoader newLoader(String name) {
+        Context context = InstrumentationRegistry.getTargetContext();
+        File cacheDirectory = new File(context.getCacheDir(), "thumbnail-test-" + name);
+        deleteRecursively(cacheDirectory);
+        return new ThumbnailLoader(context, cacheDirectory);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private Review review() {
+        List<ThumbnailVariant> variants = new ArrayList<>();
+        for (int width : WIDTHS) {
+            variants.add(new ThumbnailVariant(imageUrl(width), width, height(width)));
+        }
+        return new Review(imageUrl(DEFAULT_WIDTH), variants, "Title", "Author",
+                "2018-06-01T00:00:00Z", "4", "http://example.com/review");
+    }
+
+    private String imageUrl(int width) {
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/" + width + ".jpg";
+    }
+
+    private static byte[] download(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            InputStream in = connection.getInputStream();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count = in.read(buffer);
+            while (count != -1) {
+                out.write(buffer, 0, count);
+                count = in.read(buffer);
+            }
+            return out.toByteArray();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Answers each request for "/<width>.jpg" with a JPEG that is width by 3/5 width pixels.
+     */
+    private void serveImages() {
+        while (true) {
+            Socket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (IOException e) {
+                // The server socket was closed.
+                return;
+            }
+            try {
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), Charset.forName("UTF-8")));
+                String requestLine = reader.readLine();
+                String line = reader.readLine();
+                while (line != null && !line.isEmpty()) {
+                    line = reader.readLine();
+                }
+
+                String path = requestLine.split(" ")[1];
+                int width = Integer.parseInt(path.substring(1, path.indexOf('.')));
+                byte[] image = jpeg(width, height(width));
+
+                OutputStream out = socket.getOutputStream();
+                out.write(("HTTP/1.1 200 OK\r\n"
+                        + "Content-Type: image/jpeg\r\n"
+                        + "Content-Length: " + image.length + "\r\n"
+                        + "Connection: close\r\n"
+                        + "\r\n").getBytes("UTF-8"));
+                out.write(image);
+                out.flush();
+            } catch (IOException e) {
+                // Move on to the next request.
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Nothing to do.
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the height of the image the server sends for the given width.
+     */
+    private static int height(int width) {
+        return width * 3 / 5;
+    }
+
+    private static byte[] jpeg(int width, int height) {
+        // A gradient rather than a flat colour, so file size grows with the image size.
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels[y * width + x] = Color.rgb(x % 256, y % 256, (x * y) % 256);
+            }
+        }
+        Bitmap bitmap = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.android.newsapp;
+
+import android.os.AsyncTask;
+
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+
+/**
+ * Lets a caller cancel a review fetch that is running on another thread.
+ *
+ * Cancelling disconnects the fetch's connection, which aborts any blocked socket read, and
+ * flags the fetch so {@link QueryUtils} stops reading and parsing at the next chunk or record.
+ */
+public final class FetchCancellation {
+
+    /**
+     * Told when a {@link FetchCancellation} is cancelled.
+     */
+    interface Listener {
+        void onCanceled();
+    }
+
+    /** Set once {@link #cancel()} has been called. */
+    private volatile boolean mCanceled;
+
+    /** Connection the fetch is currently using, or null. */
+    private HttpURLConnection mConnection;
+
+    /** Told about {@link #cancel()}, or null. */
+    private Listener mListener;
+
+    /**
+     * Cancels the fetch. Safe to call from any thread, including the main thread, as the
+     * connection is torn down in the background.
+     */
+    public void cancel() {
+        final HttpURLConnection connection;
+        final Listener listener;
+        synchronized (this) {
+            if (mCanceled) {
+                return;
+            }
+            mCanceled = true;
+            connection = mConnection;
+            mConnection = null;
+            listener = mListener;
+            mListener = null;
+        }
+        if (connection != null) {
+            disconnect(connection);
+        }
+        if (listener != null) {
+            listener.onCanceled();
+        }
+    }
+
+    /**
+     * Returns true if {@link #cancel()} has been called.
+     */
+    public boolean isCanceled() { return mCanceled; }
+
+    /**
+     * Throws an {@link InterruptedIOException} if the fetch has been cancelled.
+     */
+    void throwIfCanceled() throws InterruptedIOException {
+        if (mCanceled) {
+            throw new InterruptedIOException("Review fetch was cancelled.");
+        }
+    }
+
+    /**
+     * Remembers the connection the fetch is using so {@link #cancel()} can abort it. If the fetch
+     * has already been cancelled, the connection is disconnected straight away.
+     */
+    void attach(HttpURLConnection connection) {
+        synchronized (this) {
+            if (!mCanceled) {
+                mConnection = connection;
+                return;
+            }
+        }
+        disconnect(connection);
+    }
+
+    /**
+     * Sets the listener told when this is cancelled, on the cancelling thread. If it has already
+     * been cancelled, the listener is told straight away.
+     */
+    void setListener(Listener listener) {
+        synchronized (this) {
+            if (!mCanceled) {
+                mListener = listener;
+                return;
+            }
+        }
+        listener.onCanceled();
+    }
+
+    /**
+     * Forgets the connection once the fetch has finished with it.
+     */
+    synchronized void detach() {
+        mConnection = null;
+    }
+
+    /**
+     * Disconnecting may write to the socket, so keep it off the calling thread.
+     */
+    private static void disconnect(final HttpURLConnection connection) {
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                connection.disconnect();
+            }
+        });
+    }
+}
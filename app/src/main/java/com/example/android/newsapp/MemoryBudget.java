@@ -0,0 +1,175 @@
+package com.example.android.newsapp;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shares one memory budget between the app's in-memory caches.
+ *
+ * The budget is a fixed fraction of the heap the device gives the app. Each cache registers
+ * with a weight and is allotted that share of the budget. When the system reports memory
+ * pressure through {@link #onTrimMemory(int)} or {@link #onLowMemory()}, every cache is trimmed
+ * to the same fraction of its allotment, so they shed memory in proportion to their weight.
+ */
+public final class MemoryBudget {
+
+    /**
+     * A cache whose size is managed by the {@link MemoryBudget}.
+     */
+    public interface Client {
+        /**
+         * Returns the number of bytes the cache currently holds.
+         */
+        long getResidentBytes();
+
+        /**
+         * Sets the most the cache may hold, evicting entries if it holds more.
+         */
+        void setMaxBytes(long maxBytes);
+
+        /**
+         * Evicts entries until the cache holds at most the given number of bytes, without
+         * changing its maximum size.
+         */
+        void trimToBytes(long bytes);
+    }
+
+    /** Share of the app's heap used for caches. */
+    private static final int HEAP_DIVISOR = 4;
+
+    private static MemoryBudget sInstance;
+
+    /** Total bytes shared between all registered caches. */
+    private final long mTotalBytes;
+
+    /** Registered caches by name, in registration order. Guarded by this. */
+    private final Map<String, Client> mClients = new LinkedHashMap<>();
+
+    /** Weight of each registered cache by name. Guarded by this. */
+    private final Map<String, Integer> mWeights = new LinkedHashMap<>();
+
+    /** Sum of all registered weights. Guarded by this. */
+    private int mTotalWeight;
+
+    /**
+     * Creates the shared {@link MemoryBudget} from the device's memory class. Called once from
+     * {@link NewsApplication#onCreate()}.
+     */
+    public static synchronized void init(Context context) {
+        if (sInstance == null) {
+            ActivityManager activityManager =
+                    (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            long heapBytes = activityManager.getMemoryClass() * 1024L * 1024L;
+            sInstance = new MemoryBudget(heapBytes / HEAP_DIVISOR);
+        }
+    }
+
+    /**
+     * Returns the shared {@link MemoryBudget}. {@link #init(Context)} must have been called.
+     */
+    public static synchronized MemoryBudget getInstance() { return sInstance; }
+
+    MemoryBudget(long totalBytes) {
+        mTotalBytes = totalBytes;
+    }
+
+    /**
+     * Registers a cache under the given name and weight, and resizes every registered cache to
+     * its share of the budget.
+     */
+    public synchronized void register(String name, int weight, Client client) {
+        Integer previousWeight = mWeights.put(name, weight);
+        if (previousWeight != null) {
+            mTotalWeight -= previousWeight;
+        }
+        mTotalWeight += weight;
+        mClients.put(name, client);
+        for (Map.Entry<String, Client> entry : mClients.entrySet()) {
+            entry.getValue().setMaxBytes(getAllottedBytes(entry.getKey()));
+        }
+    }
+
+    /**
+     * Returns the number of bytes the named cache may hold, or 0 if it is not registered.
+     */
+    public synchronized long getAllottedBytes(String name) {
+        Integer weight = mWeights.get(name);
+        if (weight == null || mTotalWeight == 0) {
+            return 0;
+        }
+        return mTotalBytes * weight / mTotalWeight;
+    }
+
+    /**
+     * Returns the number of bytes each registered cache currently holds, by name.
+     */
+    public synchronized Map<String, Long> getResidentBytes() {
+        Map<String, Long> residentBytes = new LinkedHashMap<>();
+        for (Map.Entry<String, Client> entry : mClients.entrySet()) {
+            residentBytes.put(entry.getKey(), entry.getValue().getResidentBytes());
+        }
+        return residentBytes;
+    }
+
+    /**
+     * Returns the total number of bytes held by all registered caches.
+     */
+    public synchronized long getTotalResidentBytes() {
+        long total = 0;
+        for (Client client : mClients.values()) {
+            total += client.getResidentBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Trims every cache in proportion to the memory pressure the level signals.
+     *
+     * @param level is one of the {@link ComponentCallbacks2} TRIM_MEMORY_* levels.
+     */
+    public synchronized void onTrimMemory(int level) {
+        trim(retainedFraction(level));
+    }
+
+    /**
+     * Empties every cache, as the whole system is low on memory.
+     */
+    public synchronized void onLowMemory() {
+        trim(0);
+    }
+
+    /**
+     * Returns the fraction of its allotment each cache keeps at the given trim level.
+     */
+    static float retainedFraction(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+            // The process is next in line to be killed.
+            return 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            return 0.25f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            return 0.5f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // Nothing is on screen, so rows can be rebuilt when the user returns.
+            return 0.5f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            return 0.25f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return 0.5f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            return 0.75f;
+        }
+        return 1;
+    }
+
+    private void trim(float retainedFraction) {
+        for (Map.Entry<String, Client> entry : mClients.entrySet()) {
+            long allotted = getAllottedBytes(entry.getKey());
+            entry.getValue().trimToBytes((long) (allotted * retainedFraction));
+        }
+    }
+}
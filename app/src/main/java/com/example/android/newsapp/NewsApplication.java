@@ -0,0 +1,49 @@
+package com.example.android.newsapp;
+
+import android.app.Application;
+import android.os.StrictMode;
+
+/**
+ * Application entry point. Sets up the shared {@link MemoryBudget} and passes memory pressure
+ * callbacks on to it.
+ *
+ * When the app is built with {@code -PstrictMode}, any disk or network access on the main thread
+ * crashes the app, so jank-causing I/O is caught while testing.
+ */
+public class NewsApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        if (BuildConfig.STRICT_MODE) {
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .detectNetwork()
+                    .penaltyLog()
+                    .penaltyDeath()
+                    .build());
+        }
+
+        // Size the in-memory caches from the device's memory class.
+        MemoryBudget.init(this);
+        MemoryBudget.getInstance().register(RequestBudget.MEMORY_CACHE_NAME,
+                RequestBudget.MEMORY_CACHE_WEIGHT, RequestBudget.getInstance());
+
+        // Creating the thumbnail loader sets up its disk cache, so keep it off the main thread.
+        ThumbnailLoader.warmUp(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        MemoryBudget.getInstance().onTrimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        MemoryBudget.getInstance().onLowMemory();
+    }
+}
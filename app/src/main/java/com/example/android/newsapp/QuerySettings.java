@@ -0,0 +1,210 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.preference.PreferenceManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the user's review query preferences, together with the Guardian
+ * query URL built from them.
+ *
+ * Snapshots are read from {@link SharedPreferences} on a background thread so the UI thread
+ * never touches the disk, and are rebuilt whenever one of the preferences changes.
+ */
+public final class QuerySettings {
+
+    /** URL for review data from The Guardian. */
+    private static final String THE_GUARDIAN_REQUEST_URL =
+            "https://content.guardianapis.com/search";
+
+    /** Key used to access The Guardian API. */
+    private static final String API_KEY = "f625187f-4a30-47c0-bf6a-a6f1d12dc4c5";
+
+    /**
+     * Receives a {@link QuerySettings} snapshot on the main thread.
+     */
+    public interface Listener {
+        void onQuerySettingsLoaded(QuerySettings settings);
+    }
+
+    /** Most recently loaded snapshot, or null until the first load finishes. */
+    private static volatile QuerySettings sCurrent;
+
+    /** Listeners told about every new snapshot. Only touched on the main thread. */
+    private static final List<Listener> sChangeListeners = new ArrayList<>();
+
+    /** Held strongly because {@link SharedPreferences} only keeps weak references. */
+    private static SharedPreferences.OnSharedPreferenceChangeListener sPreferenceListener;
+
+    /** Minimum star rating, in the "1|2|3|4|5" form the API expects. */
+    private final String mMinRating;
+
+    /** Order the reviews are returned in. */
+    private final String mOrderBy;
+
+    /** Complete query URL for the preferences above. */
+    private final String mQueryUrl;
+
+    private QuerySettings(String minRating, String orderBy) {
+        mMinRating = minRating;
+        mOrderBy = orderBy;
+        mQueryUrl = buildQueryUrl(minRating, orderBy);
+    }
+
+    /**
+     * Returns the minimum star rating preference.
+     */
+    public String getMinRating() { return mMinRating; }
+
+    /**
+     * Returns the order-by preference.
+     */
+    public String getOrderBy() { return mOrderBy; }
+
+    /**
+     * Returns the Guardian query URL for these settings.
+     */
+    public String getQueryUrl() { return mQueryUrl; }
+
+    /**
+     * Returns the most recently loaded snapshot, or null if none has been loaded yet.
+     */
+    public static QuerySettings getCurrent() { return sCurrent; }
+
+    /**
+     * Delivers the current snapshot to the listener on the main thread, loading it in the
+     * background first if it has not been loaded yet. Must be called on the main thread.
+     */
+    public static void load(Context context, Listener listener) {
+        QuerySettings current = sCurrent;
+        if (current != null) {
+            listener.onQuerySettingsLoaded(current);
+        } else {
+            new LoadTask(context.getApplicationContext(), listener)
+                    .executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        }
+    }
+
+    /**
+     * Registers a listener that is told about every snapshot rebuilt after a preference change.
+     * Must be called on the main thread.
+     */
+    public static void addChangeListener(Listener listener) {
+        sChangeListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addChangeListener(Listener)}.
+     */
+    public static void removeChangeListener(Listener listener) {
+        sChangeListeners.remove(listener);
+    }
+
+    /**
+     * Reads the preferences from disk. This must be called on a background thread.
+     */
+    private static QuerySettings read(final Context context) {
+        // Reviews are only fetched once the settings have loaded, so reading the saved
+        // placeholder colours here means the first reviews fetched get them.
+        ThumbnailPlaceholders.init(context);
+
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+
+        synchronized (QuerySettings.class) {
+            if (sPreferenceListener == null) {
+                sPreferenceListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+                    @Override
+                    public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+                        // Called on the main thread, so rebuild the snapshot in the background.
+                        new LoadTask(context, null)
+                                .executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+                    }
+                };
+                sharedPrefs.registerOnSharedPreferenceChangeListener(sPreferenceListener);
+            }
+        }
+
+        // getString retrieves a String value from the preferences. The second parameter is the
+        // default value for this preference.
+        String minRating = sharedPrefs.getString(
+                context.getString(R.string.settings_minimum_rating_key),
+                context.getString(R.string.settings_minimum_rating_default)
+        );
+
+        String orderBy = sharedPrefs.getString(
+                context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default)
+        );
+
+        return new QuerySettings(minRating, orderBy);
+    }
+
+    /**
+     * Returns the Guardian query URL for the given preferences.
+     */
+    private static String buildQueryUrl(String minRating, String orderBy) {
+        // parse breaks apart the URI string that's passed into its parameter
+        Uri baseUri = Uri.parse(THE_GUARDIAN_REQUEST_URL);
+
+        // buildUpon prepares the baseUri that we just parsed so we can add query parameters to it
+        Uri.Builder uriBuilder = baseUri.buildUpon();
+
+        // Append query parameter and its value.
+        uriBuilder.appendQueryParameter("q", "games");
+        uriBuilder.appendQueryParameter("section", "games");
+        uriBuilder.appendQueryParameter("tag", "tone/reviews");
+        uriBuilder.appendQueryParameter("star-rating", minRating);
+        uriBuilder.appendQueryParameter("show-tags", "contributor");
+        uriBuilder.appendQueryParameter("show-fields", "thumbnail,starRating");
+        uriBuilder.appendQueryParameter("show-elements", "image");
+        uriBuilder.appendQueryParameter("page", "1");
+        uriBuilder.appendQueryParameter("page-size", "20");
+        uriBuilder.appendQueryParameter("api-key", API_KEY);
+        uriBuilder.appendQueryParameter("order-by", orderBy);
+
+        // Return the completed uri `https://content.guardianapis.com/search?q=games&section=games&tag=tone/reviews&star-rating=1|2|3|4|5&show-tags=contributor&show-fields=thumbnail,starRating&show-elements=image&page=1&page-size=20&api-key=f625187f-4a30-47c0-bf6a-a6f1d12dc4c5&order-by=newest
+        return uriBuilder.toString();
+    }
+
+    /**
+     * Reads a snapshot in the background and publishes it on the main thread.
+     */
+    private static class LoadTask extends AsyncTask<Void, Void, QuerySettings> {
+        private final Context mContext;
+        private final Listener mListener;
+
+        /**
+         * @param listener to receive the snapshot, or null when the load was triggered by a
+         *                 preference change and only the change listeners should be told.
+         */
+        LoadTask(Context context, Listener listener) {
+            mContext = context;
+            mListener = listener;
+        }
+
+        @Override
+        protected QuerySettings doInBackground(Void... params) {
+            return read(mContext);
+        }
+
+        @Override
+        protected void onPostExecute(QuerySettings settings) {
+            QuerySettings previous = sCurrent;
+            sCurrent = settings;
+            if (mListener != null) {
+                mListener.onQuerySettingsLoaded(settings);
+            }
+            if (previous != null && !previous.mQueryUrl.equals(settings.mQueryUrl)) {
+                // Copy first, as a listener may unregister itself while being notified.
+                for (Listener listener : new ArrayList<>(sChangeListeners)) {
+                    listener.onQuerySettingsLoaded(settings);
+                }
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Helper methods related to requesting and receiving review data from The Guardian.
@@ -36,6 +37,17 @@ public class QueryUtils {
     private static final String WEBPUBLICATIONDATE = "webPublicationDate";
     private static final String STARRATING = "starRating";
     private static final String WEBURL = "webUrl";
+    private static final String ELEMENTS = "elements";
+    private static final String RELATION = "relation";
+    private static final String MAIN = "main";
+    private static final String ASSETS = "assets";
+    private static final String FILE = "file";
+    private static final String TYPEDATA = "typeData";
+    private static final String WIDTH = "width";
+    private static final String HEIGHT = "height";
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final String RETRY_AFTER = "Retry-After";
 
     /**
      * Create a private constructor because no one should ever create a {@link QueryUtils} object.
@@ -49,6 +61,14 @@ public class QueryUtils {
      * Query The Guardian data set and return a list of {@link Review} objects.
      */
     public static List<Review> fetchReviewData(String requestUrl) {
+        return fetchReviewData(requestUrl, new FetchCancellation());
+    }
+
+    /**
+     * Query The Guardian data set and return a list of {@link Review} objects, or null if the
+     * given {@link FetchCancellation} is cancelled before the fetch completes.
+     */
+    public static List<Review> fetchReviewData(String requestUrl, FetchCancellation cancellation) {
 
         // Create URL object.
         URL url = createUrl(requestUrl);
@@ -56,13 +76,18 @@ public class QueryUtils {
         // Perform HTTP request to the URL and receive a JSON response back.
         String jsonResponse = null;
         try {
-            jsonResponse = makeHttpRequest(url);
+            jsonResponse = makeHttpRequest(url, cancellation);
         } catch (IOException e) {
             Log.e(LOG_TAG, "Problem making the HTTP request.", e);
         }
 
+        // Nobody wants the results any more, so don't spend time parsing them.
+        if (cancellation.isCanceled()) {
+            return null;
+        }
+
         // Extract relevant fields from the JSON response and create a list of {@link Review}s.
-        List<Review> reviews = extractFeatureFromJson(jsonResponse);
+        List<Review> reviews = extractFeatureFromJson(jsonResponse, cancellation);
 
         // Return the list of {@link Review}s.
         return reviews;
@@ -82,9 +107,11 @@ public class QueryUtils {
     }
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make an HTTP request to the given URL and return a String as the response. The request is
+     * aborted as soon as the given {@link FetchCancellation} is cancelled.
      */
-    private static String makeHttpRequest(URL url) throws IOException {
+    private static String makeHttpRequest(URL url, FetchCancellation cancellation)
+            throws IOException {
         String jsonResponse = "";
 
         // If the URL is null, then return early.
@@ -99,19 +126,33 @@ public class QueryUtils {
             urlConnection.setReadTimeout(readTimeout /* milliseconds */);
             urlConnection.setConnectTimeout(connectTimeout /* milliseconds */);
             urlConnection.setRequestMethod("GET");
+            // Let a cancel disconnect the socket, which unblocks any pending connect or read.
+            cancellation.attach(urlConnection);
+            cancellation.throwIfCanceled();
             urlConnection.connect();
 
             // If the request was successful (response code 200),
             // then read the input stream and parse the response.
             if (urlConnection.getResponseCode() == HttpURLConnection.HTTP_OK) {
                 inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+                jsonResponse = readFromStream(inputStream, cancellation);
+            } else if (urlConnection.getResponseCode() == HTTP_TOO_MANY_REQUESTS) {
+                // Back off for as long as the server asks, rather than retrying straight away.
+                long retryAfterMillis = parseRetryAfter(urlConnection.getHeaderField(RETRY_AFTER));
+                Log.w(LOG_TAG, "Rate limited, pausing requests for " + retryAfterMillis + "ms.");
+                RequestBudget.getInstance().pause(retryAfterMillis);
             } else {
                 Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
             }
         } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem retrieving the review JSON results.", e);
+            if (cancellation.isCanceled()) {
+                Log.d(LOG_TAG, "Review request was cancelled.");
+                jsonResponse = "";
+            } else {
+                Log.e(LOG_TAG, "Problem retrieving the review JSON results.", e);
+            }
         } finally {
+            cancellation.detach();
             if (urlConnection != null) {
                 urlConnection.disconnect();
             }
@@ -125,19 +166,40 @@ public class QueryUtils {
         return jsonResponse;
     }
 
+    /**
+     * Return the delay from a Retry-After header given in seconds, in milliseconds, or
+     * {@link RequestBudget#DEFAULT_RETRY_AFTER_MILLIS} if there is no usable header.
+     */
+    private static long parseRetryAfter(String retryAfter) {
+        if (retryAfter != null) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) {
+                // The header may be an HTTP date instead, which isn't worth parsing here.
+            }
+        }
+        return RequestBudget.DEFAULT_RETRY_AFTER_MILLIS;
+    }
+
     /**
      * Convert the {@link InputStream} into a String which contains the
-     * whole JSON response from the server.
+     * whole JSON response from the server. Reading stops with an {@link IOException} at the
+     * next chunk once the given {@link FetchCancellation} is cancelled.
      */
-    private static String readFromStream(InputStream inputStream) throws IOException {
+    private static String readFromStream(InputStream inputStream, FetchCancellation cancellation)
+            throws IOException {
         StringBuilder output = new StringBuilder();
         if (inputStream != null) {
             InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
             BufferedReader reader = new BufferedReader(inputStreamReader);
-            String line = reader.readLine();
-            while (line != null) {
-                output.append(line);
-                line = reader.readLine();
+            // Read fixed-size chunks rather than lines, as the response is usually a single line
+            // and cancellation is checked between reads.
+            char[] buffer = new char[READ_BUFFER_SIZE];
+            int count = reader.read(buffer);
+            while (count != -1) {
+                cancellation.throwIfCanceled();
+                output.append(buffer, 0, count);
+                count = reader.read(buffer);
             }
         }
         return output.toString();
@@ -145,9 +207,11 @@ public class QueryUtils {
 
     /**
      * Return a list of {@link Review} objects that has been built up from
-     * parsing the given JSON response.
+     * parsing the given JSON response, or null if the given {@link FetchCancellation} is
+     * cancelled part way through.
      */
-    private static List<Review> extractFeatureFromJson(String reviewJSON) {
+    private static List<Review> extractFeatureFromJson(String reviewJSON,
+                                                       FetchCancellation cancellation) {
         // If the JSON string is empty or null, then return early.
         if (TextUtils.isEmpty(reviewJSON)) {
             return null;
@@ -172,6 +236,10 @@ public class QueryUtils {
 
             // For each review in the reviewArray, create an {@link Review} object.
             for (int i = 0; i < reviewArray.length(); i++) {
+                // Stop at the record boundary if the results are no longer wanted.
+                if (cancellation.isCanceled()) {
+                    return null;
+                }
 
                 // Get a single review at position i within the list of reviews.
                 JSONObject currentReview = reviewArray.getJSONObject(i);
@@ -210,12 +278,22 @@ public class QueryUtils {
                 // Extract the value for the key called "webUrl".
                 String url = currentReview.getString(WEBURL);
 
+                // Extract the sizes the thumbnail image is available in.
+                List<ThumbnailVariant> thumbnailVariants = extractThumbnailVariants(currentReview);
+
                 // Create a new {@link Review} object with the thumbnail, title, author,
                 // date, rating, and url from the JSON response.
-                Review review = new Review(thumbnail, title, author, date, rating, url);
+                Review review = new Review(thumbnail, thumbnailVariants, title, author, date,
+                        rating, url);
+
+                // Reuse the placeholder colour from the last time this thumbnail was decoded.
+                review.setPlaceholderColor(ThumbnailPlaceholders.get(url));
 
                 // Add the new {@link Review} to the list of reviews.
                 reviews.add(review);
+
+                // Fold the review into the per-author and per-month rating summaries.
+                RatingAggregator.getInstance().put(review);
             }
 
         } catch (JSONException e) {
@@ -227,4 +305,58 @@ public class QueryUtils {
 
         return reviews;
     }
-}
\ No newline at end of file
+
+    /**
+     * Return the sizes the review's thumbnail is available in, taken from the image assets of its
+     * "thumbnail" element, or its "main" element if it has no thumbnail element. Returns an empty
+     * list if the review has no image elements.
+     */
+    private static List<ThumbnailVariant> extractThumbnailVariants(JSONObject currentReview) {
+        List<ThumbnailVariant> variants = new ArrayList<>();
+        JSONArray elements = currentReview.optJSONArray(ELEMENTS);
+        if (elements == null) {
+            return variants;
+        }
+
+        // Prefer the element picked as the thumbnail, falling back to the main image.
+        JSONObject imageElement = null;
+        for (int i = 0; i < elements.length(); i++) {
+            JSONObject element = elements.optJSONObject(i);
+            if (element == null) {
+                continue;
+            }
+            String relation = element.optString(RELATION);
+            if (THUMBNAIL.equals(relation)) {
+                imageElement = element;
+                break;
+            }
+            if (MAIN.equals(relation) && imageElement == null) {
+                imageElement = element;
+            }
+        }
+        if (imageElement == null) {
+            return variants;
+        }
+
+        JSONArray assets = imageElement.optJSONArray(ASSETS);
+        if (assets == null) {
+            return variants;
+        }
+        for (int i = 0; i < assets.length(); i++) {
+            JSONObject asset = assets.optJSONObject(i);
+            if (asset == null || !asset.has(FILE)) {
+                continue;
+            }
+            // The width and height are sent as strings, which optInt converts.
+            JSONObject typeData = asset.optJSONObject(TYPEDATA);
+            int width = typeData == null
+                    ? ThumbnailVariant.UNKNOWN_WIDTH
+                    : typeData.optInt(WIDTH, ThumbnailVariant.UNKNOWN_WIDTH);
+            int height = typeData == null
+                    ? ThumbnailVariant.UNKNOWN_HEIGHT
+                    : typeData.optInt(HEIGHT, ThumbnailVariant.UNKNOWN_HEIGHT);
+            variants.add(new ThumbnailVariant(asset.optString(FILE), width, height));
+        }
+        return variants;
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.android.newsapp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps per-author and per-month rating summaries (count, average and a histogram of 0-5 stars)
+ * for every {@link Review} that has been ingested by {@link QueryUtils}.
+ *
+ * Summaries are updated incrementally as reviews are added, revised or removed, so every query
+ * is a single map lookup no matter how many reviews have been seen.
+ */
+public final class RatingAggregator {
+
+    /** Lowest star rating a review can have. */
+    public static final int MIN_RATING = 0;
+
+    /** Highest star rating a review can have. */
+    public static final int MAX_RATING = 5;
+
+    /** Number of buckets in each histogram (one per star rating). */
+    private static final int BUCKETS = MAX_RATING - MIN_RATING + 1;
+
+    /** Length of the "yyyy-MM" month key taken from the front of a review date. */
+    private static final int MONTH_KEY_LENGTH = 7;
+
+    /** Shared instance fed by {@link QueryUtils}. */
+    private static final RatingAggregator sInstance = new RatingAggregator();
+
+    /** Reviews currently counted, keyed by their website URL, so revisions can be undone. */
+    private final Map<String, Entry> mEntries = new HashMap<>();
+
+    /** Summaries keyed by author name. */
+    private final Map<String, Summary> mByAuthor = new HashMap<>();
+
+    /** Summaries keyed by "yyyy-MM" month of publication. */
+    private final Map<String, Summary> mByMonth = new HashMap<>();
+
+    /**
+     * Package-private so tests can use a fresh instance; the app uses {@link #getInstance()}.
+     */
+    RatingAggregator() {
+    }
+
+    /**
+     * Returns the shared {@link RatingAggregator} that {@link QueryUtils} feeds.
+     */
+    public static RatingAggregator getInstance() { return sInstance; }
+
+    /**
+     * Adds the given review to the summaries. If a review with the same URL was already counted,
+     * its previous author, month and rating are taken out first, so a revised review is only
+     * ever counted once.
+     */
+    public synchronized void put(Review review) {
+        if (review == null || review.getUrl() == null) {
+            return;
+        }
+        int rating = parseRating(review.getRating());
+        if (rating < MIN_RATING) {
+            // Without a usable rating there is nothing to aggregate; drop any older revision.
+            remove(review.getUrl());
+            return;
+        }
+
+        Entry entry = new Entry(review.getAuthor(), monthOf(review.getDate()), rating);
+        Entry previous = mEntries.put(review.getUrl(), entry);
+        if (previous != null) {
+            subtract(previous);
+        }
+        add(entry);
+    }
+
+    /**
+     * Removes the review with the given URL from the summaries, if it was counted.
+     */
+    public synchronized void remove(String url) {
+        Entry previous = mEntries.remove(url);
+        if (previous != null) {
+            subtract(previous);
+        }
+    }
+
+    /**
+     * Forgets every review that has been counted.
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+        mByAuthor.clear();
+        mByMonth.clear();
+    }
+
+    /**
+     * Returns the number of reviews written by the given author.
+     */
+    public synchronized int getAuthorCount(String author) {
+        Summary summary = mByAuthor.get(author);
+        return summary == null ? 0 : summary.count;
+    }
+
+    /**
+     * Returns the average rating given by the given author, or 0 if there are no reviews.
+     */
+    public synchronized double getAuthorAverage(String author) {
+        return average(mByAuthor.get(author));
+    }
+
+    /**
+     * Returns a copy of the author's histogram, indexed by star rating.
+     */
+    public synchronized int[] getAuthorHistogram(String author) {
+        return histogram(mByAuthor.get(author));
+    }
+
+    /**
+     * Returns the number of reviews published in the given "yyyy-MM" month.
+     */
+    public synchronized int getMonthCount(String month) {
+        Summary summary = mByMonth.get(month);
+        return summary == null ? 0 : summary.count;
+    }
+
+    /**
+     * Returns the average rating of reviews published in the given "yyyy-MM" month, or 0 if
+     * there are no reviews.
+     */
+    public synchronized double getMonthAverage(String month) {
+        return average(mByMonth.get(month));
+    }
+
+    /**
+     * Returns a copy of the month's histogram, indexed by star rating.
+     */
+    public synchronized int[] getMonthHistogram(String month) {
+        return histogram(mByMonth.get(month));
+    }
+
+    /**
+     * Returns the "yyyy-MM" month key for a review date such as "2018-06-01T12:00:00Z", or null
+     * if the date is too short to contain one.
+     */
+    static String monthOf(String date) {
+        if (date == null || date.length() < MONTH_KEY_LENGTH) {
+            return null;
+        }
+        return date.substring(0, MONTH_KEY_LENGTH);
+    }
+
+    /**
+     * Returns the rating as an int, or -1 if it is missing or out of range.
+     */
+    private static int parseRating(String rating) {
+        if (rating == null) {
+            return -1;
+        }
+        try {
+            int value = Integer.parseInt(rating.trim());
+            return value >= MIN_RATING && value <= MAX_RATING ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void add(Entry entry) {
+        summaryFor(mByAuthor, entry.author).add(entry.rating);
+        summaryFor(mByMonth, entry.month).add(entry.rating);
+    }
+
+    private void subtract(Entry entry) {
+        subtract(mByAuthor, entry.author, entry.rating);
+        subtract(mByMonth, entry.month, entry.rating);
+    }
+
+    private static void subtract(Map<String, Summary> summaries, String key, int rating) {
+        Summary summary = summaries.get(key);
+        if (summary == null) {
+            return;
+        }
+        summary.subtract(rating);
+        // Drop empty summaries so the maps only grow with the distinct keys still in use.
+        if (summary.count == 0) {
+            summaries.remove(key);
+        }
+    }
+
+    private static Summary summaryFor(Map<String, Summary> summaries, String key) {
+        Summary summary = summaries.get(key);
+        if (summary == null) {
+            summary = new Summary();
+            summaries.put(key, summary);
+        }
+        return summary;
+    }
+
+    private static double average(Summary summary) {
+        if (summary == null || summary.count == 0) {
+            return 0;
+        }
+        return (double) summary.total / summary.count;
+    }
+
+    private static int[] histogram(Summary summary) {
+        return summary == null ? new int[BUCKETS] : summary.histogram.clone();
+    }
+
+    /**
+     * What a single counted review contributed, so it can be subtracted again.
+     */
+    private static final class Entry {
+        final String author;
+        final String month;
+        final int rating;
+
+        Entry(String author, String month, int rating) {
+            this.author = author;
+            this.month = month;
+            this.rating = rating;
+        }
+    }
+
+    /**
+     * Running count, rating total and star histogram for one author or month.
+     */
+    private static final class Summary {
+        final int[] histogram = new int[BUCKETS];
+        int count;
+        long total;
+
+        void add(int rating) {
+            histogram[rating - MIN_RATING]++;
+            count++;
+            total += rating;
+        }
+
+        void subtract(int rating) {
+            histogram[rating - MIN_RATING]--;
+            count--;
+            total -= rating;
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package com.example.android.newsapp;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps requests to The Guardian API within the key's rate limit.
+ *
+ * Every fetch needs a token from a token bucket, which allows short bursts but refills at a
+ * fixed rate. Waiting fetches are served interactive first, then background, oldest first
+ * within each class. A fetch for a URL that is already queued or running waits for that
+ * request instead of making its own. The shared request has its own cancellation, which is
+ * only cancelled once every fetch waiting on it has been, so one caller giving up doesn't cut
+ * off the others. A fetch that cannot get a token within its priority's wait limit is rejected
+ * and given the last results fetched for the same URL instead.
+ */
+public final class RequestBudget implements MemoryBudget.Client {
+
+    /**
+     * How urgently a fetch is needed.
+     */
+    public enum Priority {
+        /** The user is waiting for the results. */
+        INTERACTIVE,
+        /** Nobody is waiting for the results, such as a prefetch. */
+        BACKGROUND
+    }
+
+    /**
+     * Performs the actual fetch once a token has been granted.
+     */
+    interface Fetcher {
+        List<Review> fetch(String url, FetchCancellation cancellation);
+    }
+
+    /** Largest burst of requests allowed. */
+    private static final int BURST_SIZE = 5;
+
+    /** Tokens added per second, well under the API's limit of 12 calls a second. */
+    private static final double TOKENS_PER_SECOND = 1;
+
+    /** Longest an interactive fetch waits for a token before falling back to cached results. */
+    private static final long INTERACTIVE_MAX_WAIT_MILLIS = 3000;
+
+    /** Longest a background fetch waits for a token before falling back to cached results. */
+    private static final long BACKGROUND_MAX_WAIT_MILLIS = 30000;
+
+    /** Wait used when the server sends a 429 response without a Retry-After header. */
+    static final long DEFAULT_RETRY_AFTER_MILLIS = 30000;
+
+    /** How often waiting fetches check whether they have been cancelled. */
+    private static final long POLL_MILLIS = 100;
+
+    /** Number of URLs whose last results are kept as a fallback. */
+    private static final int CACHE_SIZE = 8;
+
+    /** Name the cached results are registered with the {@link MemoryBudget} under. */
+    public static final String MEMORY_CACHE_NAME = "review-lists";
+
+    /** Share of the {@link MemoryBudget} given to cached results. */
+    public static final int MEMORY_CACHE_WEIGHT = 1;
+
+    /** Rough per-object overhead used when estimating the size of cached reviews. */
+    private static final int OBJECT_OVERHEAD_BYTES = 16;
+
+    private static final RequestBudget sInstance = new RequestBudget(BURST_SIZE,
+            TOKENS_PER_SECOND, INTERACTIVE_MAX_WAIT_MILLIS, BACKGROUND_MAX_WAIT_MILLIS,
+            new Fetcher() {
+                @Override
+                public List<Review> fetch(String url, FetchCancellation cancellation) {
+                    return QueryUtils.fetchReviewData(url, cancellation);
+                }
+            });
+
+    private final int mCapacity;
+    private final double mTokensPerNano;
+    private final long mInteractiveMaxWaitNanos;
+    private final long mBackgroundMaxWaitNanos;
+    private final Fetcher mFetcher;
+
+    /** Tokens currently in the bucket. Guarded by this. */
+    private double mTokens;
+
+    /** When the bucket was last refilled, from {@link System#nanoTime()}. Guarded by this. */
+    private long mLastRefillNanos;
+
+    /** No tokens are handed out before this time, set after a 429 response. Guarded by this. */
+    private long mPausedUntilNanos;
+
+    /** Fetches waiting for a token, in the order they will be served. Guarded by this. */
+    private final PriorityQueue<Request> mQueue = new PriorityQueue<>();
+
+    /** Queued and running fetches by URL, so identical fetches can share one. Guarded by this. */
+    private final Map<String, Request> mRequests = new HashMap<>();
+
+    /** Last results fetched for each URL, least recently used first. Guarded by this. */
+    private final LinkedHashMap<String, List<Review>> mCache =
+            new LinkedHashMap<String, List<Review>>(CACHE_SIZE, 0.75f, true);
+
+    /** Used to order fetches of the same priority. Guarded by this. */
+    private long mNextSequence;
+
+    /** Most bytes of cached results to keep. Guarded by this. */
+    private long mCacheMaxBytes = Long.MAX_VALUE;
+
+    /** Estimated bytes of cached results. Guarded by this. */
+    private long mCacheBytes;
+
+    /** Number of fetches that shared another fetch's request. Guarded by this. */
+    private int mCoalescedCount;
+
+    /** Number of fetches rejected for lack of a token. Guarded by this. */
+    private int mRejectedCount;
+
+    /**
+     * Returns the shared {@link RequestBudget} used for all Guardian API requests.
+     */
+    public static RequestBudget getInstance() { return sInstance; }
+
+    RequestBudget(int capacity, double tokensPerSecond, long interactiveMaxWaitMillis,
+                  long backgroundMaxWaitMillis, Fetcher fetcher) {
+        mCapacity = capacity;
+        mTokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        mInteractiveMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(interactiveMaxWaitMillis);
+        mBackgroundMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(backgroundMaxWaitMillis);
+        mFetcher = fetcher;
+        mTokens = capacity;
+        mLastRefillNanos = System.nanoTime();
+        mPausedUntilNanos = mLastRefillNanos;
+    }
+
+    /**
+     * Fetches the reviews at the given URL once the budget allows it. This blocks, so it must be
+     * called on a background thread.
+     *
+     * @return the fetched reviews; the last reviews fetched for the URL if the fetch was
+     *         rejected or failed; or null if it was cancelled or there are no cached reviews.
+     */
+    public List<Review> fetch(String url, Priority priority, FetchCancellation cancellation) {
+        final Request request;
+        synchronized (this) {
+            Request shared = mRequests.get(url);
+            if (shared != null) {
+                mCoalescedCount++;
+                join(shared, priority);
+                request = shared;
+            } else {
+                request = new Request(url, priority, mNextSequence++,
+                        System.nanoTime() + maxWaitNanos(priority));
+                mRequests.put(url, request);
+                mQueue.add(request);
+            }
+            cancellation.setListener(new FetchCancellation.Listener() {
+                @Override
+                public void onCanceled() {
+                    leave(request);
+                }
+            });
+            if (!awaitToken(request, cancellation)) {
+                // Another caller fetched it, it was rejected, or this caller gave up.
+                return results(request, cancellation);
+            }
+        }
+
+        // The request's own cancellation is only cancelled once every caller waiting on it has
+        // given up, so this caller cancelling doesn't abort the fetch for the others.
+        List<Review> reviews = mFetcher.fetch(url, request.cancellation);
+
+        synchronized (this) {
+            finish(request, reviews);
+            return results(request, cancellation);
+        }
+    }
+
+    /**
+     * Stops handing out tokens for the given time, after the server has said it is being sent
+     * too many requests.
+     */
+    public synchronized void pause(long millis) {
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        if (until - mPausedUntilNanos > 0) {
+            // Start refilling from empty once the pause is over.
+            mPausedUntilNanos = until;
+            mTokens = 0;
+            mLastRefillNanos = until;
+        }
+    }
+
+    @Override
+    public synchronized long getResidentBytes() { return mCacheBytes; }
+
+    @Override
+    public synchronized void setMaxBytes(long maxBytes) {
+        mCacheMaxBytes = maxBytes;
+        trimCache(maxBytes);
+    }
+
+    @Override
+    public synchronized void trimToBytes(long bytes) {
+        trimCache(bytes);
+    }
+
+    /**
+     * Returns the number of fetches that shared another fetch's request.
+     */
+    public synchronized int getCoalescedCount() { return mCoalescedCount; }
+
+    /**
+     * Returns the number of fetches rejected for lack of a token.
+     */
+    public synchronized int getRejectedCount() { return mRejectedCount; }
+
+    /**
+     * Adds a caller to a request that is already queued or running. If it is still queued, it
+     * moves up to the caller's priority and gives up no later than the caller's wait limit.
+     */
+    private void join(Request request, Priority priority) {
+        request.waiters++;
+        if (!request.queued) {
+            return;
+        }
+        long deadline = System.nanoTime() + maxWaitNanos(priority);
+        if (deadline - request.deadlineNanos < 0) {
+            request.deadlineNanos = deadline;
+        }
+        if (priority.compareTo(request.priority) < 0) {
+            // Move the shared request up to the more urgent class.
+            mQueue.remove(request);
+            request.priority = priority;
+            mQueue.add(request);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Removes a caller that has given up from a request, and cancels the request once nobody is
+     * waiting for it.
+     */
+    private synchronized void leave(Request request) {
+        if (request.done) {
+            return;
+        }
+        request.waiters--;
+        if (request.waiters == 0) {
+            request.cancellation.cancel();
+            if (request.queued) {
+                finish(request, null);
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * Waits until the request is first in the queue and a token is available, then takes the
+     * token and removes the request from the queue. Any caller waiting on the request can take
+     * the token, so it is still fetched if the caller that queued it gives up.
+     *
+     * @return true if the caller should now run the fetch; false if the request is done or the
+     *         caller gave up.
+     */
+    private boolean awaitToken(Request request, FetchCancellation cancellation) {
+        while (!request.done) {
+            if (isAbandoned(cancellation)) {
+                // Cancelling also takes the caller off the request, through its listener.
+                cancellation.cancel();
+                return false;
+            }
+            if (!request.queued) {
+                // Another caller has the token and is running the fetch.
+                waitUpTo(TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS));
+                continue;
+            }
+            long now = System.nanoTime();
+            long waitNanos = request.deadlineNanos - now;
+            if (mQueue.peek() == request) {
+                long tokenNanos = nanosUntilToken(now);
+                if (tokenNanos == 0) {
+                    mTokens--;
+                    mQueue.poll();
+                    request.queued = false;
+                    // The next request in the queue is now first.
+                    notifyAll();
+                    return true;
+                }
+                if (tokenNanos > waitNanos) {
+                    // No token will arrive in time, so don't keep the callers waiting.
+                    reject(request);
+                    return false;
+                }
+                waitNanos = tokenNanos;
+            } else if (waitNanos <= 0) {
+                reject(request);
+                return false;
+            }
+            waitUpTo(waitNanos);
+        }
+        return false;
+    }
+
+    /**
+     * Gives up on a request that can't get a token in time.
+     */
+    private void reject(Request request) {
+        mRejectedCount++;
+        finish(request, null);
+    }
+
+    /**
+     * Returns what a caller of a finished request gets: null if it gave up, otherwise the
+     * request's results, or the cached results if it failed or was rejected.
+     */
+    private List<Review> results(Request request, FetchCancellation cancellation) {
+        if (cancellation.isCanceled()) {
+            return null;
+        }
+        return request.reviews != null ? request.reviews : mCache.get(request.url);
+    }
+
+    /**
+     * Marks the request as done, caches its results and wakes up everyone waiting.
+     */
+    private void finish(Request request, List<Review> reviews) {
+        if (request.queued) {
+            mQueue.remove(request);
+            request.queued = false;
+        }
+        mRequests.remove(request.url);
+        if (reviews != null) {
+            cache(request.url, reviews);
+        }
+        request.reviews = reviews;
+        request.done = true;
+        notifyAll();
+    }
+
+    /**
+     * Caches the results for the URL, then evicts the least recently used results until the
+     * cache is within its limits.
+     */
+    private void cache(String url, List<Review> reviews) {
+        List<Review> previous = mCache.put(url, reviews);
+        if (previous != null) {
+            mCacheBytes -= estimateBytes(url, previous);
+        }
+        mCacheBytes += estimateBytes(url, reviews);
+        while (mCache.size() > CACHE_SIZE) {
+            evictEldest();
+        }
+        trimCache(mCacheMaxBytes);
+    }
+
+    /**
+     * Evicts the least recently used results until the cache holds at most the given bytes.
+     */
+    private void trimCache(long maxBytes) {
+        while (mCacheBytes > maxBytes && !mCache.isEmpty()) {
+            evictEldest();
+        }
+    }
+
+    private void evictEldest() {
+        Map.Entry<String, List<Review>> eldest = mCache.entrySet().iterator().next();
+        mCacheBytes -= estimateBytes(eldest.getKey(), eldest.getValue());
+        mCache.remove(eldest.getKey());
+    }
+
+    /**
+     * Returns a rough estimate of the memory used by the cached results for a URL.
+     */
+    private static long estimateBytes(String url, List<Review> reviews) {
+        long bytes = estimateBytes(url) + OBJECT_OVERHEAD_BYTES;
+        for (Review review : reviews) {
+            bytes += OBJECT_OVERHEAD_BYTES
+                    + estimateBytes(review.getThumbnail())
+                    + estimateBytes(review.getTitle())
+                    + estimateBytes(review.getAuthor())
+                    + estimateBytes(review.getDate())
+                    + estimateBytes(review.getRating())
+                    + estimateBytes(review.getUrl());
+            for (ThumbnailVariant variant : review.getThumbnailVariants()) {
+                bytes += OBJECT_OVERHEAD_BYTES + estimateBytes(variant.getUrl());
+            }
+        }
+        return bytes;
+    }
+
+    private static long estimateBytes(String value) {
+        // Two bytes per char, plus the String and its array.
+        return value == null ? 0 : 2L * value.length() + 2 * OBJECT_OVERHEAD_BYTES;
+    }
+
+    /**
+     * Refills the bucket and returns how long until a token is available, or 0 if one is.
+     */
+    private long nanosUntilToken(long now) {
+        if (now - mPausedUntilNanos < 0) {
+            return mPausedUntilNanos - now;
+        }
+        long elapsed = now - mLastRefillNanos;
+        if (elapsed > 0) {
+            mTokens = Math.min(mCapacity, mTokens + elapsed * mTokensPerNano);
+            mLastRefillNanos = now;
+        }
+        if (mTokens >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - mTokens) / mTokensPerNano);
+    }
+
+    /**
+     * Returns how long a fetch of the given priority waits for a token before it is rejected.
+     */
+    private long maxWaitNanos(Priority priority) {
+        return priority == Priority.INTERACTIVE
+                ? mInteractiveMaxWaitNanos : mBackgroundMaxWaitNanos;
+    }
+
+    /**
+     * Returns true if the caller no longer wants the results.
+     */
+    private static boolean isAbandoned(FetchCancellation cancellation) {
+        return cancellation.isCanceled() || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Waits on this object for at most the given time, or {@link #POLL_MILLIS} so cancellation
+     * is noticed promptly.
+     */
+    private void waitUpTo(long nanos) {
+        long millis = Math.min(POLL_MILLIS, TimeUnit.NANOSECONDS.toMillis(nanos) + 1);
+        try {
+            wait(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A fetch that is waiting for a token or running, shared by every fetch for the same URL.
+     */
+    private static final class Request implements Comparable<Request> {
+        final String url;
+        final long sequence;
+        /** Cancelled once every caller waiting on the request has given up. */
+        final FetchCancellation cancellation = new FetchCancellation();
+        Priority priority;
+        /** The request is rejected if it has no token by this time, from nanoTime. */
+        long deadlineNanos;
+        /** Callers waiting on the request that haven't given up. */
+        int waiters = 1;
+        boolean queued = true;
+        boolean done;
+        List<Review> reviews;
+
+        Request(String url, Priority priority, long sequence, long deadlineNanos) {
+            this.url = url;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            int byPriority = priority.compareTo(other.priority);
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.android.newsapp;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A {@link Review} object contains information related to a video game review by The Guardian.
  */
@@ -23,6 +26,15 @@ public class Review {
     /** Website URL for the review. */
     private String mUrl;
 
+    /** Sizes the thumbnail is available in. */
+    private List<ThumbnailVariant> mThumbnailVariants;
+
+    /**
+     * Colour shown while the thumbnail loads, or {@link ThumbnailPlaceholders#NONE}. Set on a
+     * background thread the first time the thumbnail is decoded.
+     */
+    private volatile int mPlaceholderColor = ThumbnailPlaceholders.NONE;
+
     /**
      * Constructs a new {@link Review} object.
      *
@@ -34,12 +46,35 @@ public class Review {
      * @param url is the website URL for the full review.
      */
     public Review(String thumbnail, String title, String author, String date, String rating, String url) {
+        this(thumbnail, new ArrayList<ThumbnailVariant>(), title, author, date, rating, url);
+    }
+
+    /**
+     * Constructs a new {@link Review} object whose thumbnail is available in several sizes.
+     *
+     * @param thumbnail is the thumbnail associated with the review.
+     * @param thumbnailVariants is the list of sizes the thumbnail is available in. If it is
+     *                          empty, the thumbnail is used as the only variant.
+     * @param title is the title of the review.
+     * @param author is the author of the review.
+     * @param date is the date the review was published.
+     * @param rating is the rating given by the reviewer.
+     * @param url is the website URL for the full review.
+     */
+    public Review(String thumbnail, List<ThumbnailVariant> thumbnailVariants, String title,
+                  String author, String date, String rating, String url) {
         mThumbnail = thumbnail;
         mTitle = title;
         mAuthor = author;
         mDate = date;
         mRating = rating;
         mUrl = url;
+        mThumbnailVariants = thumbnailVariants;
+        if (mThumbnailVariants.isEmpty() && thumbnail != null
+                && !thumbnail.isEmpty()) {
+            mThumbnailVariants.add(new ThumbnailVariant(thumbnail, ThumbnailVariant.UNKNOWN_WIDTH,
+                    ThumbnailVariant.UNKNOWN_HEIGHT));
+        }
     }
 
     /**
@@ -47,6 +82,22 @@ public class Review {
      */
     public String getThumbnail() { return mThumbnail; }
 
+    /**
+     * Returns the sizes the thumbnail is available in.
+     */
+    public List<ThumbnailVariant> getThumbnailVariants() { return mThumbnailVariants; }
+
+    /**
+     * Returns the colour to show while the thumbnail loads, or
+     * {@link ThumbnailPlaceholders#NONE} if it has not been computed yet.
+     */
+    public int getPlaceholderColor() { return mPlaceholderColor; }
+
+    /**
+     * Sets the colour to show while the thumbnail loads.
+     */
+    public void setPlaceholderColor(int placeholderColor) { mPlaceholderColor = placeholderColor; }
+
     /**
      * Returns the title of the review.
      */
@@ -5,11 +5,9 @@ import android.app.LoaderManager.LoaderCallbacks;
 import android.content.Context;
 import android.content.Intent;
 import android.content.Loader;
-import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.Uri;
-import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.util.Log;
@@ -26,10 +24,6 @@ import java.util.List;
 public class ReviewActivity extends AppCompatActivity
         implements LoaderCallbacks<List<Review>> {
 
-    /** URL for review data from The Guardian. */
-    private static final String THE_GUARDIAN_REQUEST_URL =
-            "https://content.guardianapis.com/search";
-
     /**
      * Constant value for the review loader ID.
      */
@@ -41,6 +35,17 @@ public class ReviewActivity extends AppCompatActivity
     /** TextView that is displayed when the list is empty. */
     private TextView mEmptyStateTextView;
 
+    /** Reloads the reviews when the user changes the query settings. */
+    private final QuerySettings.Listener mSettingsChangeListener = new QuerySettings.Listener() {
+        @Override
+        public void onQuerySettingsLoaded(QuerySettings settings) {
+            LoaderManager loaderManager = getLoaderManager();
+            if (loaderManager.getLoader(REVIEW_LOADER_ID) != null) {
+                loaderManager.restartLoader(REVIEW_LOADER_ID, null, ReviewActivity.this);
+            }
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -88,13 +93,23 @@ public class ReviewActivity extends AppCompatActivity
 
         // If there is a network connection, fetch data.
         if (networkInfo != null && networkInfo.isConnected()) {
-            // Get a reference to the LoaderManager, in order to interact with loaders.
-            LoaderManager loaderManager = getLoaderManager();
-
-            // Initialize the loader. Pass in the int ID constant defined above and pass in null
-            // the bundle. Pass in this activity for the LoaderCallbacks parameter (which is valid
-            // because this activity implements the LoaderCallbacks interface.
-            loaderManager.initLoader(REVIEW_LOADER_ID, null, this);
+            // Read the query settings off the main thread, then start loading.
+            QuerySettings.load(this, new QuerySettings.Listener() {
+                @Override
+                public void onQuerySettingsLoaded(QuerySettings settings) {
+                    if (isFinishing()) {
+                        return;
+                    }
+                    // Get a reference to the LoaderManager, in order to interact with loaders.
+                    LoaderManager loaderManager = getLoaderManager();
+
+                    // Initialize the loader. Pass in the int ID constant defined above and pass in
+                    // null the bundle. Pass in this activity for the LoaderCallbacks parameter
+                    // (which is valid because this activity implements the LoaderCallbacks
+                    // interface.
+                    loaderManager.initLoader(REVIEW_LOADER_ID, null, ReviewActivity.this);
+                }
+            });
         } else {
             // Otherwise, display error. First, hide loading indicator so error message will be
             // visible.
@@ -104,43 +119,21 @@ public class ReviewActivity extends AppCompatActivity
             // Update empty state with no connection error message.
             mEmptyStateTextView.setText((getString(R.string.no_internet_connection)));
         }
+
+        QuerySettings.addChangeListener(mSettingsChangeListener);
+    }
+
+    @Override
+    protected void onDestroy() {
+        QuerySettings.removeChangeListener(mSettingsChangeListener);
+        super.onDestroy();
     }
 
     @Override
     public Loader<List<Review>> onCreateLoader(int i, Bundle bundle) {
-        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-
-        // getString retrieves a String value from the preferences. The second parameter is the default value for this preference.
-        String minRating = sharedPrefs.getString(
-                getString(R.string.settings_minimum_rating_key),
-                getString(R.string.settings_minimum_rating_default)
-        );
-
-        String orderBy = sharedPrefs.getString(
-                getString(R.string.settings_order_by_key),
-                getString(R.string.settings_order_by_default)
-        );
-
-        // parse breaks apart the URI string that's passed into its parameter
-        Uri baseUri = Uri.parse(THE_GUARDIAN_REQUEST_URL);
-
-        // buildUpon prepares the baseUri that we just parsed so we can add query parameters to it
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-
-        // Append query parameter and its value.
-        uriBuilder.appendQueryParameter("q", "games");
-        uriBuilder.appendQueryParameter("section", "games");
-        uriBuilder.appendQueryParameter("tag", "tone/reviews");
-        uriBuilder.appendQueryParameter("star-rating", minRating);
-        uriBuilder.appendQueryParameter("show-tags", "contributor");
-        uriBuilder.appendQueryParameter("show-fields", "thumbnail,starRating");
-        uriBuilder.appendQueryParameter("page", "1");
-        uriBuilder.appendQueryParameter("page-size", "20");
-        uriBuilder.appendQueryParameter("api-key", "f625187f-4a30-47c0-bf6a-a6f1d12dc4c5");
-        uriBuilder.appendQueryParameter("order-by", orderBy);
-
-        // Return the completed uri `https://content.guardianapis.com/search?q=games&section=games&tag=tone/reviews&star-rating=1|2|3|4|5&show-tags=contributor&show-fields=thumbnail,starRating&page=1&page-size=20&api-key=f625187f-4a30-47c0-bf6a-a6f1d12dc4c5&order-by=newest
-        return new ReviewLoader(this, uriBuilder.toString());
+        // The loader is only started once the settings snapshot has been loaded, so reading it
+        // here never touches the disk.
+        return new ReviewLoader(this, QuerySettings.getCurrent().getQueryUrl());
     }
 
     @Override
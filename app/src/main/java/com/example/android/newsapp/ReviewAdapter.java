@@ -12,8 +12,6 @@ import android.widget.ArrayAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.squareup.picasso.Picasso;
-
 import java.io.InputStream;
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -31,6 +29,12 @@ import java.util.TimeZone;
  */
 public class ReviewAdapter extends ArrayAdapter<Review> {
 
+    /** Loads thumbnails at the size they are displayed at, or null until it has been created. */
+    private ThumbnailLoader mThumbnailLoader;
+
+    /** Whether the network was metered or slow when the data set last changed. */
+    private boolean mConstrainedNetwork;
+
     /**
      * Constructs a new {@link ReviewAdapter}.
      *
@@ -39,6 +43,28 @@ public class ReviewAdapter extends ArrayAdapter<Review> {
      */
     public ReviewAdapter(Context context, List<Review> reviews) {
         super(context, 0, reviews);
+
+        // Creating the loader touches the disk, so it is handed over once it has been created
+        // in the background, and the rows are bound again to load their thumbnails.
+        ThumbnailLoader.whenReady(context, new ThumbnailLoader.Listener() {
+            @Override
+            public void onThumbnailLoaderReady(ThumbnailLoader loader) {
+                mThumbnailLoader = loader;
+                notifyDataSetChanged();
+            }
+        });
+    }
+
+    /**
+     * Checks the network once per data set change, rather than once per row, so every row in
+     * the new data set picks its thumbnail size for the same network.
+     */
+    @Override
+    public void notifyDataSetChanged() {
+        if (mThumbnailLoader != null) {
+            mConstrainedNetwork = mThumbnailLoader.isConstrainedNetwork();
+        }
+        super.notifyDataSetChanged();
     }
 
     /**
@@ -64,13 +90,12 @@ public class ReviewAdapter extends ArrayAdapter<Review> {
         ImageView thumbnailView = listItemView.findViewById(R.id.thumbnail);
         // Display the image of the current review in that ImageView.
         Log.e("getThumbnail", getThumbnail);
-        if (currentReview.getThumbnail() == "") {
+        // Load the smallest image that covers the view, or show the placeholder if there is none.
+        if (mThumbnailLoader == null) {
+            // Leave the view empty until the loader is ready and the rows are bound again.
+            thumbnailView.setImageDrawable(null);
+        } else if (!mThumbnailLoader.load(currentReview, thumbnailView, mConstrainedNetwork)) {
             thumbnailView.setImageResource(R.drawable.no_image_found);
-        } else {
-            Picasso.get().load(currentReview.getThumbnail()).into(thumbnailView);
-            // The rubric stated no external libraries, so I wrote out the logic to perform the same
-            // task Picasso does. I still implemented Picasso because it downloads the images quicker.
-//        new DownloadImageTask(thumbnailView).execute(currentReview.getThumbnail());
         }
 
         // Find the TextView with view ID title.
@@ -16,6 +16,15 @@ public class ReviewLoader extends AsyncTaskLoader<List<Review>> {
     /** Query URL. */
     private String mUrl;
 
+    /** Cancellation for the fetch currently running in the background, or null. Guarded by this. */
+    private FetchCancellation mCancellation;
+
+    /**
+     * Set when the current load is cancelled, possibly before its fetch has started, and cleared
+     * once the cancelled load has finished. No other load runs in between. Guarded by this.
+     */
+    private boolean mCanceled;
+
     /**
      * Constructs a new {@link ReviewLoader}.
      *
@@ -30,6 +39,21 @@ public class ReviewLoader extends AsyncTaskLoader<List<Review>> {
     @Override
     protected void onStartLoading() { forceLoad(); }
 
+    @Override
+    protected void onStopLoading() {
+        // cancelLoadInBackground() is only called from API 16, so cancel the fetch here too.
+        if (cancelLoad()) {
+            cancelFetch();
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        // The activity is going away, so stop any fetch that is still running.
+        onStopLoading();
+    }
+
     /**
      * This is on a background thread.
      */
@@ -39,8 +63,54 @@ public class ReviewLoader extends AsyncTaskLoader<List<Review>> {
             return null;
         }
 
-        // Perform the network request, parse the response, and extract a list of reviews.
-        List<Review> reviews = QueryUtils.fetchReviewData(mUrl);
-        return reviews;
+        FetchCancellation cancellation = new FetchCancellation();
+        synchronized (this) {
+            if (mCanceled) {
+                // The load was cancelled while it was queued, so don't spend a token on it.
+                return null;
+            }
+            mCancellation = cancellation;
+        }
+        try {
+            // Perform the network request, parse the response, and extract a list of reviews.
+            // The request budget keeps us within the API's rate limit and shares identical
+            // requests; if the request is rejected, it returns the last reviews it fetched.
+            List<Review> reviews = RequestBudget.getInstance()
+                    .fetch(mUrl, RequestBudget.Priority.INTERACTIVE, cancellation);
+            return reviews;
+        } finally {
+            synchronized (this) {
+                mCancellation = null;
+            }
+        }
+    }
+
+    /**
+     * Called on the main thread when the results of the running load are no longer wanted.
+     * Aborts the connection and stops reading and parsing the response.
+     */
+    @Override
+    public void cancelLoadInBackground() { cancelFetch(); }
+
+    /**
+     * Called on the main thread once a cancelled load has finished, before the next load starts.
+     */
+    @Override
+    public void onCanceled(List<Review> data) {
+        super.onCanceled(data);
+        synchronized (this) {
+            mCanceled = false;
+        }
+    }
+
+    /**
+     * Cancels the fetch of the current load, or stops it from starting if the load is still
+     * waiting for a thread.
+     */
+    private synchronized void cancelFetch() {
+        mCanceled = true;
+        if (mCancellation != null) {
+            mCancellation.cancel();
+        }
     }
 }
\ No newline at end of file
@@ -1,11 +1,9 @@
 package com.example.android.newsapp;
 
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.preference.ListPreference;
 import android.preference.Preference;
 import android.preference.PreferenceFragment;
-import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
 
 public class SettingsActivity extends AppCompatActivity {
@@ -22,13 +20,24 @@ public class SettingsActivity extends AppCompatActivity {
         @Override
         public void onCreate(Bundle savedInstanceState) {
             super.onCreate(savedInstanceState);
-            addPreferencesFromResource(R.xml.settings_main);
 
-            Preference minRating = findPreference(getString(R.string.settings_minimum_rating_key));
-            bindPreferenceSummaryToValue(minRating);
+            // Inflating the preferences reads their stored values, so wait until the settings
+            // snapshot has loaded the shared preferences off the main thread.
+            QuerySettings.load(getActivity(), new QuerySettings.Listener() {
+                @Override
+                public void onQuerySettingsLoaded(QuerySettings settings) {
+                    if (!isAdded()) {
+                        return;
+                    }
+                    addPreferencesFromResource(R.xml.settings_main);
 
-            Preference orderBy = findPreference(getString(R.string.settings_order_by_key));
-            bindPreferenceSummaryToValue(orderBy);
+                    Preference minRating = findPreference(getString(R.string.settings_minimum_rating_key));
+                    bindPreferenceSummaryToValue(minRating, settings.getMinRating());
+
+                    Preference orderBy = findPreference(getString(R.string.settings_order_by_key));
+                    bindPreferenceSummaryToValue(orderBy, settings.getOrderBy());
+                }
+            });
         }
 
         @Override
@@ -47,11 +56,9 @@ public class SettingsActivity extends AppCompatActivity {
             return true;
         }
 
-        private void bindPreferenceSummaryToValue(Preference preference) {
+        private void bindPreferenceSummaryToValue(Preference preference, String value) {
             preference.setOnPreferenceChangeListener(this);
-            SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(preference.getContext());
-            String preferenceString = preferences.getString(preference.getKey(), "");
-            onPreferenceChange(preference, preferenceString);
+            onPreferenceChange(preference, value);
         }
     }
 }
@@ -0,0 +1,335 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.AsyncTask;
+import android.support.v4.net.ConnectivityManagerCompat;
+import android.telephony.TelephonyManager;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.squareup.picasso.OkHttp3Downloader;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+import com.squareup.picasso.Transformation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Cache;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/**
+ * Loads review thumbnails at the size they are displayed at.
+ *
+ * For each thumbnail the narrowest {@link ThumbnailVariant} that covers the view is downloaded,
+ * stepping down a size on metered or slow connections, and it is decoded straight to the view's
+ * size as an RGB_565 bitmap, which needs half the memory of the default ARGB_8888. Counters
+ * report how many bytes were downloaded and how many bitmap bytes were decoded.
+ *
+ * The first time a review's thumbnail is decoded, its average colour is kept as the review's
+ * placeholder, and later binds show that colour while the image loads.
+ */
+public final class ThumbnailLoader {
+
+    /** Name of the directory, inside the app's cache directory, used for the HTTP cache. */
+    private static final String CACHE_DIRECTORY = "thumbnail-cache";
+
+    /** Size of the HTTP cache in bytes. */
+    private static final long CACHE_SIZE = 10 * 1024 * 1024;
+
+    /** Size of the memory cache until the {@link MemoryBudget} sets it. */
+    private static final int MEMORY_CACHE_SIZE = 4 * 1024 * 1024;
+
+    /** Name the memory cache is registered with the {@link MemoryBudget} under. */
+    public static final String MEMORY_CACHE_NAME = "thumbnails";
+
+    /** Share of the {@link MemoryBudget} given to decoded thumbnails. */
+    private static final int MEMORY_CACHE_WEIGHT = 4;
+
+    /** Number of pixels sampled across, and down, a thumbnail to find its average colour. */
+    private static final int COLOR_SAMPLES = 8;
+
+    /**
+     * Receives the shared {@link ThumbnailLoader} on the main thread.
+     */
+    public interface Listener {
+        void onThumbnailLoaderReady(ThumbnailLoader loader);
+    }
+
+    /** The shared loader, or null until it has been created off the main thread. */
+    private static volatile ThumbnailLoader sInstance;
+
+    private final Picasso mPicasso;
+    private final ThumbnailMemoryCache mMemoryCache;
+    private final ConnectivityManager mConnectivityManager;
+
+    /** Bytes of image data downloaded over the network (cache hits are not counted). */
+    private final AtomicLong mNetworkBytes = new AtomicLong();
+
+    /** Bytes of bitmap memory decoded. */
+    private final AtomicLong mBitmapBytes = new AtomicLong();
+
+    /** Number of bitmaps decoded. */
+    private final AtomicLong mDecodeCount = new AtomicLong();
+
+    /** Records the size of every decoded bitmap without changing it. */
+    private final Transformation mDecodeCounter = new Transformation() {
+        @Override
+        public Bitmap transform(Bitmap source) {
+            mBitmapBytes.addAndGet(source.getRowBytes() * source.getHeight());
+            mDecodeCount.incrementAndGet();
+            return source;
+        }
+
+        @Override
+        public String key() {
+            return "decode-counter";
+        }
+    };
+
+    /**
+     * Returns the shared {@link ThumbnailLoader}, creating it if needed. Creating it touches the
+     * disk, so this must be called on a background thread.
+     */
+    private static synchronized ThumbnailLoader getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new ThumbnailLoader(appContext,
+                    new File(appContext.getCacheDir(), CACHE_DIRECTORY));
+            MemoryBudget.getInstance()
+                    .register(MEMORY_CACHE_NAME, MEMORY_CACHE_WEIGHT, sInstance.mMemoryCache);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Creates the shared {@link ThumbnailLoader} on a background thread.
+     */
+    public static void warmUp(final Context context) {
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                getInstance(context);
+            }
+        });
+    }
+
+    /**
+     * Delivers the shared {@link ThumbnailLoader} to the listener on the main thread, creating it
+     * in the background first if it has not been created yet. Must be called on the main thread.
+     */
+    public static void whenReady(Context context, Listener listener) {
+        ThumbnailLoader instance = sInstance;
+        if (instance != null) {
+            listener.onThumbnailLoaderReady(instance);
+        } else {
+            new CreateTask(context.getApplicationContext(), listener)
+                    .executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        }
+    }
+
+    /**
+     * Creates the shared loader in the background and hands it to a listener on the main thread.
+     */
+    private static class CreateTask extends AsyncTask<Void, Void, ThumbnailLoader> {
+        private final Context mContext;
+        private final Listener mListener;
+
+        CreateTask(Context context, Listener listener) {
+            mContext = context;
+            mListener = listener;
+        }
+
+        @Override
+        protected ThumbnailLoader doInBackground(Void... params) {
+            return getInstance(mContext);
+        }
+
+        @Override
+        protected void onPostExecute(ThumbnailLoader loader) {
+            mListener.onThumbnailLoaderReady(loader);
+        }
+    }
+
+    /**
+     * Constructs a new {@link ThumbnailLoader} that caches images in the given directory.
+     */
+    ThumbnailLoader(Context context, File cacheDirectory) {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .cache(new Cache(cacheDirectory, CACHE_SIZE))
+                .addNetworkInterceptor(new Interceptor() {
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        Response response = chain.proceed(chain.request());
+                        // Chunked responses report -1 and are not counted.
+                        long length = response.body().contentLength();
+                        if (length > 0) {
+                            mNetworkBytes.addAndGet(length);
+                        }
+                        return response;
+                    }
+                })
+                .build();
+        mMemoryCache = new ThumbnailMemoryCache(MEMORY_CACHE_SIZE);
+        mPicasso = new Picasso.Builder(context)
+                .downloader(new OkHttp3Downloader(client))
+                .memoryCache(mMemoryCache)
+                .build();
+        mConnectivityManager = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    /**
+     * Loads the thumbnail of the given review into the given view, sized to the view's layout
+     * width and height.
+     *
+     * @return false if the review has no thumbnail.
+     */
+    public boolean load(Review review, ImageView imageView, boolean constrainedNetwork) {
+        ViewGroup.LayoutParams params = imageView.getLayoutParams();
+        RequestCreator request = request(review, params.width, params.height, constrainedNetwork);
+        if (request == null) {
+            // The view may be recycled from a row whose thumbnail is still loading.
+            mPicasso.cancelRequest(imageView);
+            return false;
+        }
+        request.into(imageView);
+        return true;
+    }
+
+    /**
+     * Returns a request for the thumbnail of the given review, decoded to fit the given size, or
+     * null if the review has no thumbnail.
+     */
+    public RequestCreator request(Review review, int width, int height,
+                                  boolean constrainedNetwork) {
+        ThumbnailVariant variant = ThumbnailVariant.choose(review.getThumbnailVariants(),
+                width, height, constrainedNetwork);
+        if (variant == null) {
+            return null;
+        }
+        RequestCreator request = mPicasso.load(variant.getUrl())
+                .config(Bitmap.Config.RGB_565)
+                .transform(mDecodeCounter)
+                .transform(new PlaceholderTransformation(review));
+        int placeholderColor = review.getPlaceholderColor();
+        if (placeholderColor == ThumbnailPlaceholders.NONE) {
+            // Picasso may have joined an earlier bind's request for the same image, and given the
+            // colour to that bind's review object, so look it up by the review's URL too.
+            placeholderColor = ThumbnailPlaceholders.get(review.getUrl());
+            review.setPlaceholderColor(placeholderColor);
+        }
+        if (placeholderColor != ThumbnailPlaceholders.NONE) {
+            // Show the thumbnail's average colour straight away instead of an empty view.
+            request.placeholder(new ColorDrawable(placeholderColor));
+        }
+        if (width > 0 && height > 0) {
+            request.resize(width, height).centerCrop().onlyScaleDown();
+        }
+        return request;
+    }
+
+    /**
+     * Computes a review's placeholder colour from its decoded thumbnail, if it doesn't have one
+     * yet. Picasso runs this on its background thread, and only when the image is decoded rather
+     * than served from the memory cache.
+     */
+    private static class PlaceholderTransformation implements Transformation {
+        private final Review mReview;
+
+        PlaceholderTransformation(Review review) {
+            mReview = review;
+        }
+
+        @Override
+        public Bitmap transform(Bitmap source) {
+            if (mReview.getPlaceholderColor() != ThumbnailPlaceholders.NONE) {
+                return source;
+            }
+            int color = averageColor(source);
+            mReview.setPlaceholderColor(color);
+            ThumbnailPlaceholders.put(mReview.getUrl(), color);
+            return source;
+        }
+
+        @Override
+        public String key() {
+            // The same for every review, so it doesn't split the memory cache by review.
+            return "placeholder";
+        }
+    }
+
+    /**
+     * Returns the average colour of the bitmap, taken from an evenly spaced grid of pixels.
+     * Scaling down to a single pixel instead would only sample the few pixels at the centre.
+     */
+    static int averageColor(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        for (int row = 0; row < COLOR_SAMPLES; row++) {
+            // The centre of each cell of the grid.
+            int y = (2 * row + 1) * height / (2 * COLOR_SAMPLES);
+            for (int column = 0; column < COLOR_SAMPLES; column++) {
+                int x = (2 * column + 1) * width / (2 * COLOR_SAMPLES);
+                int pixel = bitmap.getPixel(x, y);
+                red += Color.red(pixel);
+                green += Color.green(pixel);
+                blue += Color.blue(pixel);
+            }
+        }
+        int count = COLOR_SAMPLES * COLOR_SAMPLES;
+        return Color.rgb((int) (red / count), (int) (green / count), (int) (blue / count));
+    }
+
+    /**
+     * Returns true if the active network is metered or slow, so smaller images should be used.
+     */
+    public boolean isConstrainedNetwork() {
+        NetworkInfo networkInfo = mConnectivityManager.getActiveNetworkInfo();
+        if (networkInfo == null) {
+            return false;
+        }
+        if (ConnectivityManagerCompat.isActiveNetworkMetered(mConnectivityManager)) {
+            return true;
+        }
+        if (networkInfo.getType() != ConnectivityManager.TYPE_MOBILE) {
+            return false;
+        }
+        switch (networkInfo.getSubtype()) {
+            case TelephonyManager.NETWORK_TYPE_GPRS:
+            case TelephonyManager.NETWORK_TYPE_EDGE:
+            case TelephonyManager.NETWORK_TYPE_CDMA:
+            case TelephonyManager.NETWORK_TYPE_1xRTT:
+            case TelephonyManager.NETWORK_TYPE_IDEN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the number of image bytes downloaded over the network.
+     */
+    public long getNetworkBytes() { return mNetworkBytes.get(); }
+
+    /**
+     * Returns the number of bitmap bytes decoded.
+     */
+    public long getBitmapBytes() { return mBitmapBytes.get(); }
+
+    /**
+     * Returns the number of bitmaps decoded.
+     */
+    public long getDecodeCount() { return mDecodeCount.get(); }
+}
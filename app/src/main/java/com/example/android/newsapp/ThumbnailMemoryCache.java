@@ -0,0 +1,78 @@
+package com.example.android.newsapp;
+
+import android.graphics.Bitmap;
+import android.support.v4.util.LruCache;
+
+import com.squareup.picasso.Cache;
+
+import java.util.Map;
+
+/**
+ * Picasso memory cache for decoded thumbnails, sized by the {@link MemoryBudget}.
+ */
+public class ThumbnailMemoryCache implements Cache, MemoryBudget.Client {
+
+    /** Separates the URI from the rest of Picasso's memory cache keys. */
+    private static final char KEY_SEPARATOR = '\n';
+
+    private final LruCache<String, Bitmap> mCache;
+
+    /**
+     * Constructs a new {@link ThumbnailMemoryCache}.
+     *
+     * @param maxBytes is the size of the cache until the {@link MemoryBudget} sets it.
+     */
+    public ThumbnailMemoryCache(int maxBytes) {
+        mCache = new LruCache<String, Bitmap>(Math.max(1, maxBytes)) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    @Override
+    public Bitmap get(String key) { return mCache.get(key); }
+
+    @Override
+    public void set(String key, Bitmap bitmap) { mCache.put(key, bitmap); }
+
+    @Override
+    public int size() { return mCache.size(); }
+
+    @Override
+    public int maxSize() { return mCache.maxSize(); }
+
+    @Override
+    public void clear() { mCache.evictAll(); }
+
+    @Override
+    public void clearKeyUri(String keyPrefix) {
+        int length = keyPrefix.length();
+        for (Map.Entry<String, Bitmap> entry : mCache.snapshot().entrySet()) {
+            String key = entry.getKey();
+            // Match the whole URI, so clearing "a.jpg" doesn't also clear "a.jpg?w=140".
+            if (key.startsWith(keyPrefix) && key.length() > length
+                    && key.charAt(length) == KEY_SEPARATOR) {
+                mCache.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public long getResidentBytes() { return mCache.size(); }
+
+    @Override
+    public void setMaxBytes(long maxBytes) {
+        mCache.resize((int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes)));
+    }
+
+    @Override
+    public void trimToBytes(long bytes) {
+        if (bytes <= 0) {
+            mCache.evictAll();
+        } else {
+            mCache.trimToSize((int) Math.min(Integer.MAX_VALUE, bytes));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the placeholder colour computed for each review's thumbnail, by review URL, so
+ * reviews fetched again get their placeholder straight away.
+ *
+ * The colours are saved in the app's cache directory and read back by {@link #init(Context)},
+ * so the first reviews shown after the app restarts get their placeholders too. Both happen
+ * on background threads.
+ */
+public final class ThumbnailPlaceholders {
+
+    /** Tag for log messages. */
+    private static final String LOG_TAG = ThumbnailPlaceholders.class.getSimpleName();
+
+    /** Colour meaning no placeholder has been computed. Computed colours are always opaque. */
+    public static final int NONE = 0;
+
+    /** Number of placeholders kept. Each is a single int, so this costs very little memory. */
+    private static final int MAX_ENTRIES = 500;
+
+    /** Name of the file, inside the app's cache directory, the colours are saved in. */
+    private static final String FILE_NAME = "thumbnail-placeholders";
+
+    private static final Map<String, Integer> sColors =
+            new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    /** File the colours are saved in, or null until {@link #init(Context)} has been called. */
+    private static File sFile;
+
+    /** Whether a save has been scheduled but not started yet. */
+    private static boolean sSavePending;
+
+    /** Held while reading or saving the file, so they never overlap. */
+    private static final Object sSaveLock = new Object();
+
+    /** Writes the colours to {@link #sFile}. */
+    private static final Runnable SAVE = new Runnable() {
+        @Override
+        public void run() {
+            save();
+        }
+    };
+
+    /**
+     * Create a private constructor because no one should ever create a
+     * {@link ThumbnailPlaceholders} object.
+     */
+    private ThumbnailPlaceholders() {
+    }
+
+    /**
+     * Reads the colours saved by earlier runs of the app. This reads the disk, so it must be
+     * called on a background thread. Only the first call does anything.
+     */
+    public static void init(Context context) {
+        File file = new File(context.getApplicationContext().getCacheDir(), FILE_NAME);
+        synchronized (ThumbnailPlaceholders.class) {
+            if (sFile != null) {
+                return;
+            }
+            sFile = file;
+        }
+        // Don't let a save triggered by put() overwrite the file before it has been read.
+        synchronized (sSaveLock) {
+            try {
+                InputStream in = new BufferedInputStream(new FileInputStream(file));
+                try {
+                    readFrom(in);
+                } finally {
+                    in.close();
+                }
+            } catch (FileNotFoundException e) {
+                // Nothing has been saved yet.
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem reading the thumbnail placeholders.", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the placeholder colour for the review with the given URL, or {@link #NONE}.
+     */
+    public static synchronized int get(String reviewUrl) {
+        Integer color = sColors.get(reviewUrl);
+        return color == null ? NONE : color;
+    }
+
+    /**
+     * Stores the placeholder colour for the review with the given URL, and saves the colours
+     * in the background.
+     */
+    public static synchronized void put(String reviewUrl, int color) {
+        sColors.put(reviewUrl, color);
+        if (sFile != null && !sSavePending) {
+            // Colours put while this save is pending are written by it too.
+            sSavePending = true;
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(SAVE);
+        }
+    }
+
+    /**
+     * Reads colours written by {@link #writeTo(OutputStream)}. Colours already known are kept.
+     */
+    static void readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            String reviewUrl = data.readUTF();
+            int color = data.readInt();
+            synchronized (ThumbnailPlaceholders.class) {
+                if (!sColors.containsKey(reviewUrl)) {
+                    sColors.put(reviewUrl, color);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the colours, least recently used first so reading them back keeps that order.
+     */
+    static void writeTo(OutputStream out) throws IOException {
+        String[] reviewUrls;
+        int[] colors;
+        synchronized (ThumbnailPlaceholders.class) {
+            reviewUrls = new String[sColors.size()];
+            colors = new int[sColors.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : sColors.entrySet()) {
+                reviewUrls[i] = entry.getKey();
+                colors[i] = entry.getValue();
+                i++;
+            }
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(reviewUrls.length);
+        for (int i = 0; i < reviewUrls.length; i++) {
+            data.writeUTF(reviewUrls[i]);
+            data.writeInt(colors[i]);
+        }
+        data.flush();
+    }
+
+    /**
+     * Writes the colours to a temporary file and renames it over the saved one, so a save that
+     * is interrupted never leaves a partly written file behind. Runs on a background thread.
+     */
+    private static void save() {
+        File file;
+        synchronized (ThumbnailPlaceholders.class) {
+            sSavePending = false;
+            file = sFile;
+        }
+        File temporary = new File(file.getPath() + ".tmp");
+        synchronized (sSaveLock) {
+            try {
+                OutputStream out = new BufferedOutputStream(new FileOutputStream(temporary));
+                try {
+                    writeTo(out);
+                } finally {
+                    out.close();
+                }
+                if (!temporary.renameTo(file)) {
+                    Log.e(LOG_TAG, "Problem saving the thumbnail placeholders.");
+                }
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem saving the thumbnail placeholders.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.android.newsapp;
+
+import java.util.List;
+
+/**
+ * A {@link ThumbnailVariant} is one of the sizes a review's thumbnail image is available in.
+ */
+public class ThumbnailVariant {
+
+    /** Width used when the size of an image is not known. */
+    public static final int UNKNOWN_WIDTH = 0;
+
+    /** Height used when the height of an image is not known. */
+    public static final int UNKNOWN_HEIGHT = 0;
+
+    /** URL of the image file. */
+    private String mUrl;
+
+    /** Width of the image in pixels, or {@link #UNKNOWN_WIDTH}. */
+    private int mWidth;
+
+    /** Height of the image in pixels, or {@link #UNKNOWN_HEIGHT}. */
+    private int mHeight;
+
+    /**
+     * Constructs a new {@link ThumbnailVariant} object.
+     *
+     * @param url is the URL of the image file.
+     * @param width is the width of the image in pixels, or {@link #UNKNOWN_WIDTH}.
+     * @param height is the height of the image in pixels, or {@link #UNKNOWN_HEIGHT}.
+     */
+    public ThumbnailVariant(String url, int width, int height) {
+        mUrl = url;
+        mWidth = width;
+        mHeight = height;
+    }
+
+    /**
+     * Returns the URL of the image file.
+     */
+    public String getUrl() { return mUrl; }
+
+    /**
+     * Returns the width of the image in pixels, or {@link #UNKNOWN_WIDTH}.
+     */
+    public int getWidth() { return mWidth; }
+
+    /**
+     * Returns the height of the image in pixels, or {@link #UNKNOWN_HEIGHT}.
+     */
+    public int getHeight() { return mHeight; }
+
+    /**
+     * Returns true if the image is at least as large as the given view in both directions, so
+     * it can be center-cropped into the view without scaling up. An image of unknown height is
+     * judged by its width alone.
+     */
+    private boolean covers(int targetWidth, int targetHeight) {
+        return mWidth >= targetWidth && (mHeight <= UNKNOWN_HEIGHT || mHeight >= targetHeight);
+    }
+
+    /**
+     * Returns the variant to load into a view of the given size in pixels.
+     *
+     * This is the narrowest variant at least as wide and as tall as the view, or the widest one
+     * if none is. The view is center-cropped, so for a square view and a landscape image it is
+     * the height that decides. On a metered or slow connection, the next narrower variant is
+     * used instead, trading some sharpness for fewer bytes. Variants of unknown width are only
+     * used if nothing else is available.
+     *
+     * @param variants is the list of variants, in any order.
+     * @param targetWidth is the width of the view in pixels.
+     * @param targetHeight is the height of the view in pixels.
+     * @param constrainedNetwork is true on a metered or slow connection.
+     * @return the chosen variant, or null if the list is empty.
+     */
+    public static ThumbnailVariant choose(List<ThumbnailVariant> variants, int targetWidth,
+                                          int targetHeight, boolean constrainedNetwork) {
+        if (variants == null || variants.isEmpty()) {
+            return null;
+        }
+
+        ThumbnailVariant covering = null;
+        ThumbnailVariant widest = null;
+        ThumbnailVariant unknown = null;
+        for (ThumbnailVariant variant : variants) {
+            int width = variant.getWidth();
+            if (width <= UNKNOWN_WIDTH) {
+                unknown = variant;
+                continue;
+            }
+            if (widest == null || width > widest.getWidth()) {
+                widest = variant;
+            }
+            if (variant.covers(targetWidth, targetHeight)
+                    && (covering == null || width < covering.getWidth())) {
+                covering = variant;
+            }
+        }
+
+        ThumbnailVariant chosen = covering != null ? covering : widest;
+        if (chosen == null) {
+            return unknown;
+        }
+        if (constrainedNetwork) {
+            ThumbnailVariant smaller = nextNarrower(variants, chosen.getWidth());
+            if (smaller != null) {
+                chosen = smaller;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Returns the widest variant that is narrower than the given width, or null if there is none.
+     */
+    private static ThumbnailVariant nextNarrower(List<ThumbnailVariant> variants, int width) {
+        ThumbnailVariant narrower = null;
+        for (ThumbnailVariant variant : variants) {
+            int variantWidth = variant.getWidth();
+            if (variantWidth > UNKNOWN_WIDTH && variantWidth < width
+                    && (narrower == null || variantWidth > narrower.getWidth())) {
+                narrower = variant;
+            }
+        }
+        return narrower;
+    }
+}
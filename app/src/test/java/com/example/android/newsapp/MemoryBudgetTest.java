@@ -0,0 +1,95 @@
+package com.example.android.newsapp;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link MemoryBudget}.
+ */
+public class MemoryBudgetTest {
+
+    private MemoryBudget mBudget;
+    private FakeCache mThumbnails;
+    private FakeCache mReviewLists;
+
+    @Before
+    public void setUp() {
+        mBudget = new MemoryBudget(1000);
+        mThumbnails = new FakeCache();
+        mReviewLists = new FakeCache();
+        mBudget.register("thumbnails", 4, mThumbnails);
+        mBudget.register("review-lists", 1, mReviewLists);
+    }
+
+    @Test
+    public void register_splitsBudgetByWeight() {
+        assertEquals(800, mBudget.getAllottedBytes("thumbnails"));
+        assertEquals(200, mBudget.getAllottedBytes("review-lists"));
+        assertEquals(800, mThumbnails.maxBytes);
+        assertEquals(200, mReviewLists.maxBytes);
+    }
+
+    @Test
+    public void onTrimMemory_shrinksCachesProportionally() {
+        mThumbnails.residentBytes = 800;
+        mReviewLists.residentBytes = 200;
+
+        mBudget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+        assertEquals(400, mThumbnails.residentBytes);
+        assertEquals(100, mReviewLists.residentBytes);
+        assertEquals(500, mBudget.getTotalResidentBytes());
+        // Trimming sheds entries but leaves the caches free to grow back.
+        assertEquals(800, mThumbnails.maxBytes);
+    }
+
+    @Test
+    public void onLowMemory_emptiesCaches() {
+        mThumbnails.residentBytes = 600;
+        mReviewLists.residentBytes = 50;
+
+        mBudget.onLowMemory();
+
+        assertEquals(0L, (long) mBudget.getResidentBytes().get("thumbnails"));
+        assertEquals(0L, (long) mBudget.getResidentBytes().get("review-lists"));
+    }
+
+    @Test
+    public void retainedFraction_dropsAsPressureRises() {
+        assertEquals(1f, MemoryBudget.retainedFraction(0), 0f);
+        assertEquals(0.75f,
+                MemoryBudget.retainedFraction(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE), 0f);
+        assertEquals(0.25f,
+                MemoryBudget.retainedFraction(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL), 0f);
+        assertEquals(0.25f,
+                MemoryBudget.retainedFraction(ComponentCallbacks2.TRIM_MEMORY_MODERATE), 0f);
+        assertEquals(0f,
+                MemoryBudget.retainedFraction(ComponentCallbacks2.TRIM_MEMORY_COMPLETE), 0f);
+    }
+
+    /**
+     * Cache that just records what the budget asks of it.
+     */
+    private static class FakeCache implements MemoryBudget.Client {
+        long maxBytes;
+        long residentBytes;
+
+        @Override
+        public long getResidentBytes() { return residentBytes; }
+
+        @Override
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            residentBytes = Math.min(residentBytes, maxBytes);
+        }
+
+        @Override
+        public void trimToBytes(long bytes) {
+            residentBytes = Math.min(residentBytes, bytes);
+        }
+    }
+}
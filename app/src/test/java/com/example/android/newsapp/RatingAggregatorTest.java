@@ -0,0 +1,70 @@
+package com.example.android.newsapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RatingAggregator}.
+ */
+public class RatingAggregatorTest {
+
+    private RatingAggregator mAggregator;
+
+    @Before
+    public void setUp() {
+        mAggregator = new RatingAggregator();
+    }
+
+    @Test
+    public void put_updatesAuthorAndMonthSummaries() {
+        mAggregator.put(review("a", "Rich Stanton", "2018-06-01T10:00:00Z", "4"));
+        mAggregator.put(review("b", "Rich Stanton", "2018-06-12T10:00:00Z", "2"));
+        mAggregator.put(review("c", "Keza MacDonald", "2018-05-20T10:00:00Z", "5"));
+
+        assertEquals(2, mAggregator.getAuthorCount("Rich Stanton"));
+        assertEquals(3.0, mAggregator.getAuthorAverage("Rich Stanton"), 0.0001);
+        assertArrayEquals(new int[]{0, 0, 1, 0, 1, 0},
+                mAggregator.getAuthorHistogram("Rich Stanton"));
+
+        assertEquals(2, mAggregator.getMonthCount("2018-06"));
+        assertEquals(1, mAggregator.getMonthCount("2018-05"));
+        assertEquals(5.0, mAggregator.getMonthAverage("2018-05"), 0.0001);
+    }
+
+    @Test
+    public void put_revisedReviewReplacesPreviousContribution() {
+        mAggregator.put(review("a", "Rich Stanton", "2018-06-01T10:00:00Z", "4"));
+        mAggregator.put(review("a", "Keza MacDonald", "2018-07-01T10:00:00Z", "1"));
+
+        assertEquals(0, mAggregator.getAuthorCount("Rich Stanton"));
+        assertEquals(0, mAggregator.getMonthCount("2018-06"));
+        assertEquals(1, mAggregator.getAuthorCount("Keza MacDonald"));
+        assertArrayEquals(new int[]{0, 1, 0, 0, 0, 0},
+                mAggregator.getMonthHistogram("2018-07"));
+    }
+
+    @Test
+    public void remove_takesReviewOutOfSummaries() {
+        mAggregator.put(review("a", "Rich Stanton", "2018-06-01T10:00:00Z", "4"));
+        mAggregator.put(review("b", "Rich Stanton", "2018-06-02T10:00:00Z", "2"));
+        mAggregator.remove("a");
+
+        assertEquals(1, mAggregator.getAuthorCount("Rich Stanton"));
+        assertEquals(2.0, mAggregator.getAuthorAverage("Rich Stanton"), 0.0001);
+    }
+
+    @Test
+    public void put_ignoresInvalidRating() {
+        mAggregator.put(review("a", "Rich Stanton", "2018-06-01T10:00:00Z", "n/a"));
+
+        assertEquals(0, mAggregator.getAuthorCount("Rich Stanton"));
+        assertEquals(0.0, mAggregator.getAuthorAverage("Rich Stanton"), 0.0001);
+        assertArrayEquals(new int[6], mAggregator.getAuthorHistogram("Rich Stanton"));
+    }
+
+    private static Review review(String url, String author, String date, String rating) {
+        return new Review("", "Title", author, date, rating, url);
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RequestBudget}.
+ */
+public class RequestBudgetTest {
+
+    /** URLs in the order the fetcher was asked for them. */
+    private final List<String> mFetched = Collections.synchronizedList(new ArrayList<String>());
+
+    /** Fetcher that records the URL and returns a single review pointing at it. */
+    private final RequestBudget.Fetcher mFetcher = new RequestBudget.Fetcher() {
+        @Override
+        public List<Review> fetch(String url, FetchCancellation cancellation) {
+            mFetched.add(url);
+            return reviewsFor(url);
+        }
+    };
+
+    @Test
+    public void fetch_spacesRequestsAtRefillRate() {
+        // One token every 50ms, no burst.
+        RequestBudget budget = new RequestBudget(1, 20, 5000, 5000, mFetcher);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(budget.fetch("url" + i, RequestBudget.Priority.INTERACTIVE,
+                    new FetchCancellation()));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(5, mFetched.size());
+        // The first request uses the initial token; the other four wait ~50ms each.
+        assertTrue(elapsedMillis >= 180);
+        assertEquals(0, budget.getRejectedCount());
+    }
+
+    @Test
+    public void fetch_servesInteractiveBeforeBackground() throws Exception {
+        // One token every 200ms, no burst.
+        final RequestBudget budget = new RequestBudget(1, 5, 5000, 5000, mFetcher);
+        budget.fetch("first", RequestBudget.Priority.INTERACTIVE, new FetchCancellation());
+
+        Thread background = fetchInThread(budget, "background", RequestBudget.Priority.BACKGROUND);
+        Thread.sleep(50);
+        Thread interactive =
+                fetchInThread(budget, "interactive", RequestBudget.Priority.INTERACTIVE);
+        background.join(5000);
+        interactive.join(5000);
+
+        assertEquals(3, mFetched.size());
+        assertEquals("interactive", mFetched.get(1));
+        assertEquals("background", mFetched.get(2));
+    }
+
+    @Test
+    public void fetch_coalescesIdenticalRequests() throws Exception {
+        final CountDownLatch fetchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFetch = new CountDownLatch(1);
+        final AtomicInteger fetchCount = new AtomicInteger();
+        final RequestBudget budget = new RequestBudget(5, 1, 5000, 5000,
+                new RequestBudget.Fetcher() {
+                    @Override
+                    public List<Review> fetch(String url, FetchCancellation cancellation) {
+                        fetchCount.incrementAndGet();
+                        fetchStarted.countDown();
+                        try {
+                            releaseFetch.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return reviewsFor(url);
+                    }
+                });
+
+        final AtomicReference<List<Review>> first = new AtomicReference<>();
+        final AtomicReference<List<Review>> second = new AtomicReference<>();
+        Thread firstThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                first.set(budget.fetch("same", RequestBudget.Priority.BACKGROUND,
+                        new FetchCancellation()));
+            }
+        });
+        firstThread.start();
+        assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+
+        Thread secondThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                second.set(budget.fetch("same", RequestBudget.Priority.INTERACTIVE,
+                        new FetchCancellation()));
+            }
+        });
+        secondThread.start();
+        while (budget.getCoalescedCount() == 0) {
+            Thread.sleep(10);
+        }
+        releaseFetch.countDown();
+        firstThread.join(5000);
+        secondThread.join(5000);
+
+        assertEquals(1, fetchCount.get());
+        assertNotNull(first.get());
+        assertSame(first.get(), second.get());
+    }
+
+    @Test
+    public void fetch_keepsSharedFetchRunningWhenFirstCallerCancels() throws Exception {
+        final CountDownLatch fetchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFetch = new CountDownLatch(1);
+        final AtomicReference<FetchCancellation> fetchCancellation = new AtomicReference<>();
+        final RequestBudget budget = new RequestBudget(5, 1, 5000, 5000,
+                new RequestBudget.Fetcher() {
+                    @Override
+                    public List<Review> fetch(String url, FetchCancellation cancellation) {
+                        fetchCancellation.set(cancellation);
+                        fetchStarted.countDown();
+                        try {
+                            releaseFetch.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return cancellation.isCanceled() ? null : reviewsFor(url);
+                    }
+                });
+
+        FetchCancellation firstCancellation = new FetchCancellation();
+        final AtomicReference<List<Review>> first = new AtomicReference<>();
+        Thread firstThread = fetchInThread(budget, "same", firstCancellation, first);
+        assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+
+        final AtomicReference<List<Review>> second = new AtomicReference<>();
+        Thread secondThread = fetchInThread(budget, "same", new FetchCancellation(), second);
+        while (budget.getCoalescedCount() == 0) {
+            Thread.sleep(10);
+        }
+        firstCancellation.cancel();
+        releaseFetch.countDown();
+        firstThread.join(5000);
+        secondThread.join(5000);
+
+        assertFalse(fetchCancellation.get().isCanceled());
+        assertNull(first.get());
+        assertNotNull(second.get());
+        assertEquals("same", second.get().get(0).getUrl());
+    }
+
+    @Test
+    public void fetch_stillFetchesWhenFirstCallerCancelsWhileQueued() throws Exception {
+        // One token every 200ms, no burst.
+        RequestBudget budget = new RequestBudget(1, 5, 5000, 5000, mFetcher);
+        budget.fetch("first", RequestBudget.Priority.INTERACTIVE, new FetchCancellation());
+
+        FetchCancellation firstCancellation = new FetchCancellation();
+        AtomicReference<List<Review>> first = new AtomicReference<>();
+        Thread firstThread = fetchInThread(budget, "same", firstCancellation, first);
+        AtomicReference<List<Review>> second = new AtomicReference<>();
+        Thread secondThread = fetchInThread(budget, "same", new FetchCancellation(), second);
+        while (budget.getCoalescedCount() == 0) {
+            Thread.sleep(10);
+        }
+        firstCancellation.cancel();
+        firstThread.join(5000);
+        secondThread.join(5000);
+
+        assertNull(first.get());
+        assertNotNull(second.get());
+        assertEquals(2, mFetched.size());
+        assertEquals("same", mFetched.get(1));
+    }
+
+    @Test
+    public void fetch_cancelsSharedFetchOnceEveryCallerCancels() throws Exception {
+        // One token every 200ms, no burst.
+        RequestBudget budget = new RequestBudget(1, 5, 5000, 5000, mFetcher);
+        budget.fetch("first", RequestBudget.Priority.INTERACTIVE, new FetchCancellation());
+
+        FetchCancellation firstCancellation = new FetchCancellation();
+        FetchCancellation secondCancellation = new FetchCancellation();
+        AtomicReference<List<Review>> first = new AtomicReference<>();
+        AtomicReference<List<Review>> second = new AtomicReference<>();
+        Thread firstThread = fetchInThread(budget, "same", firstCancellation, first);
+        Thread secondThread = fetchInThread(budget, "same", secondCancellation, second);
+        while (budget.getCoalescedCount() == 0) {
+            Thread.sleep(10);
+        }
+        firstCancellation.cancel();
+        secondCancellation.cancel();
+        firstThread.join(5000);
+        secondThread.join(5000);
+        Thread.sleep(300);
+
+        assertNull(first.get());
+        assertNull(second.get());
+        // Nobody was left waiting, so the request never took a token.
+        assertEquals(1, mFetched.size());
+    }
+
+    @Test
+    public void fetch_fallsBackToCachedResultsWhenRejected() {
+        // One token every 10 seconds, and interactive fetches only wait 100ms.
+        RequestBudget budget = new RequestBudget(1, 0.1, 100, 100, mFetcher);
+
+        List<Review> fetched =
+                budget.fetch("url", RequestBudget.Priority.INTERACTIVE, new FetchCancellation());
+        List<Review> rejected =
+                budget.fetch("url", RequestBudget.Priority.INTERACTIVE, new FetchCancellation());
+
+        assertEquals(1, mFetched.size());
+        assertEquals(1, budget.getRejectedCount());
+        assertSame(fetched, rejected);
+    }
+
+    @Test
+    public void fetch_interactiveJoinerShortensBackgroundWait() throws Exception {
+        // One token every 10 seconds; interactive fetches wait 100ms, background 20 seconds.
+        final RequestBudget budget = new RequestBudget(1, 0.1, 100, 20000, mFetcher);
+        budget.fetch("first", RequestBudget.Priority.INTERACTIVE, new FetchCancellation());
+
+        Thread background = fetchInThread(budget, "same", RequestBudget.Priority.BACKGROUND);
+        Thread.sleep(50);
+        long start = System.nanoTime();
+        assertNull(budget.fetch("same", RequestBudget.Priority.INTERACTIVE,
+                new FetchCancellation()));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        background.join(5000);
+
+        assertEquals(1, budget.getCoalescedCount());
+        assertEquals(1, budget.getRejectedCount());
+        assertTrue(elapsedMillis < 1000);
+    }
+
+    @Test
+    public void fetch_returnsNullWhenRejectedWithoutCachedResults() {
+        RequestBudget budget = new RequestBudget(1, 0.1, 100, 100, mFetcher);
+        budget.fetch("url", RequestBudget.Priority.INTERACTIVE, new FetchCancellation());
+
+        assertNull(budget.fetch("other", RequestBudget.Priority.INTERACTIVE,
+                new FetchCancellation()));
+        assertEquals(1, budget.getRejectedCount());
+    }
+
+    @Test
+    public void trimToBytes_evictsCachedResults() {
+        RequestBudget budget = new RequestBudget(1, 0.1, 100, 100, mFetcher);
+        budget.fetch("url", RequestBudget.Priority.INTERACTIVE, new FetchCancellation());
+        assertTrue(budget.getResidentBytes() > 0);
+
+        budget.trimToBytes(0);
+
+        assertEquals(0, budget.getResidentBytes());
+        assertNull(budget.fetch("url", RequestBudget.Priority.INTERACTIVE,
+                new FetchCancellation()));
+    }
+
+    private Thread fetchInThread(final RequestBudget budget, final String url,
+                                 final RequestBudget.Priority priority) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                budget.fetch(url, priority, new FetchCancellation());
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private Thread fetchInThread(final RequestBudget budget, final String url,
+                                 final FetchCancellation cancellation,
+                                 final AtomicReference<List<Review>> result) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result.set(budget.fetch(url, RequestBudget.Priority.INTERACTIVE, cancellation));
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static List<Review> reviewsFor(String url) {
+        List<Review> reviews = new ArrayList<>();
+        reviews.add(new Review("", "Title", "Author", "2018-06-01T00:00:00Z", "3", url));
+        return reviews;
+    }
+}
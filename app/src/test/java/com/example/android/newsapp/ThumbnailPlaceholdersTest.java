@@ -0,0 +1,71 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for saving and reading back {@link ThumbnailPlaceholders}.
+ */
+public class ThumbnailPlaceholdersTest {
+
+    @Test
+    public void writeTo_savesEveryColor() throws Exception {
+        ThumbnailPlaceholders.put("http://example.com/first", 0xFF336699);
+        ThumbnailPlaceholders.put("http://example.com/second", 0xFF996633);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ThumbnailPlaceholders.writeTo(out);
+        Map<String, Integer> saved = parse(out.toByteArray());
+
+        assertEquals(Integer.valueOf(0xFF336699), saved.get("http://example.com/first"));
+        assertEquals(Integer.valueOf(0xFF996633), saved.get("http://example.com/second"));
+    }
+
+    @Test
+    public void readFrom_restoresSavedColors() throws Exception {
+        // What an earlier run of the app saved.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(1);
+        data.writeUTF("http://example.com/saved");
+        data.writeInt(0xFF123456);
+        data.flush();
+        assertEquals(ThumbnailPlaceholders.NONE,
+                ThumbnailPlaceholders.get("http://example.com/saved"));
+
+        ThumbnailPlaceholders.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(0xFF123456, ThumbnailPlaceholders.get("http://example.com/saved"));
+    }
+
+    @Test
+    public void readFrom_keepsColorsAlreadyKnown() throws Exception {
+        ThumbnailPlaceholders.put("http://example.com/changed", 0xFF000000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ThumbnailPlaceholders.writeTo(out);
+        ThumbnailPlaceholders.put("http://example.com/changed", 0xFFFFFFFF);
+
+        ThumbnailPlaceholders.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(0xFFFFFFFF, ThumbnailPlaceholders.get("http://example.com/changed"));
+    }
+
+    private static Map<String, Integer> parse(byte[] bytes) throws Exception {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes));
+        Map<String, Integer> colors = new HashMap<>();
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            String reviewUrl = data.readUTF();
+            colors.put(reviewUrl, data.readInt());
+        }
+        return colors;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ThumbnailVariant#choose(List, int, int, boolean)}.
+ */
+public class ThumbnailVariantTest {
+
+    /** The 5:3 landscape sizes The Guardian serves. */
+    private final List<ThumbnailVariant> mVariants = Arrays.asList(
+            new ThumbnailVariant("1000.jpg", 1000, 600),
+            new ThumbnailVariant("140.jpg", 140, 84),
+            new ThumbnailVariant("500.jpg", 500, 300));
+
+    @Test
+    public void choose_picksNarrowestVariantCoveringTheView() {
+        assertEquals(140, ThumbnailVariant.choose(mVariants, 96, 56, false).getWidth());
+        assertEquals(500, ThumbnailVariant.choose(mVariants, 288, 96, false).getWidth());
+        assertEquals(500, ThumbnailVariant.choose(mVariants, 500, 300, false).getWidth());
+    }
+
+    @Test
+    public void choose_needsVariantTallEnoughForTheView() {
+        // The 140 pixel variant is wide enough for a 96 pixel square, but only 84 pixels tall.
+        assertEquals(500, ThumbnailVariant.choose(mVariants, 96, 96, false).getWidth());
+        assertEquals(1000, ThumbnailVariant.choose(mVariants, 288, 400, false).getWidth());
+    }
+
+    @Test
+    public void choose_judgesVariantOfUnknownHeightByWidth() {
+        List<ThumbnailVariant> variants = Arrays.asList(
+                new ThumbnailVariant("140.jpg", 140, ThumbnailVariant.UNKNOWN_HEIGHT),
+                new ThumbnailVariant("500.jpg", 500, ThumbnailVariant.UNKNOWN_HEIGHT));
+
+        assertEquals(140, ThumbnailVariant.choose(variants, 96, 96, false).getWidth());
+    }
+
+    @Test
+    public void choose_picksWidestVariantWhenNoneCoversTheView() {
+        assertEquals(1000, ThumbnailVariant.choose(mVariants, 1440, 1440, false).getWidth());
+    }
+
+    @Test
+    public void choose_stepsDownOnConstrainedNetwork() {
+        assertEquals(140, ThumbnailVariant.choose(mVariants, 288, 96, true).getWidth());
+        assertEquals(140, ThumbnailVariant.choose(mVariants, 96, 56, true).getWidth());
+        assertEquals(140, ThumbnailVariant.choose(mVariants, 96, 96, true).getWidth());
+    }
+
+    @Test
+    public void choose_fallsBackToVariantOfUnknownWidth() {
+        List<ThumbnailVariant> variants = new ArrayList<>();
+        variants.add(new ThumbnailVariant("thumbnail.jpg", ThumbnailVariant.UNKNOWN_WIDTH,
+                ThumbnailVariant.UNKNOWN_HEIGHT));
+
+        assertEquals("thumbnail.jpg", ThumbnailVariant.choose(variants, 288, 288, true).getUrl());
+    }
+
+    @Test
+    public void choose_returnsNullWithoutVariants() {
+        assertNull(ThumbnailVariant.choose(new ArrayList<ThumbnailVariant>(), 288, 288, false));
+    }
+}